@@ -1,5 +1,7 @@
 package org.folio.rest.impl;
 
+import java.io.InputStream;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -11,18 +13,29 @@ import javax.validation.constraints.Pattern;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.core.Response;
 
+import org.folio.rest.jaxrs.model.Change;
+import org.folio.rest.jaxrs.model.Changes;
+import org.folio.rest.jaxrs.model.Deleteresult;
 import org.folio.rest.jaxrs.model.Instance;
+import org.folio.rest.jaxrs.model.Instancebatch;
 import org.folio.rest.jaxrs.model.Instances;
 import org.folio.rest.jaxrs.resource.InstanceStorageResource;
 import org.folio.rest.persist.PostgresClient;
 import org.folio.rest.persist.Criteria.Criteria;
 import org.folio.rest.persist.Criteria.Criterion;
-import org.folio.rest.persist.Criteria.Limit;
-import org.folio.rest.persist.Criteria.Offset;
-import org.folio.rest.persist.cql.CQLWrapper;
+import org.folio.rest.support.BatchInsert;
+import org.folio.rest.support.BulkDelete;
+import org.folio.rest.support.BulkLoad;
+import org.folio.rest.support.ChangeFeed;
+import org.folio.rest.support.CqlTranslationCache;
+import org.folio.rest.support.KeysetPage;
+import org.folio.rest.support.OffsetPage;
+import org.folio.rest.support.TotalRecords;
+import org.folio.rest.support.Upsert;
+import org.folio.rest.support.VersionedRecord;
+import org.folio.rest.support.WriteCoalescer;
 import org.folio.rest.tools.utils.OutStream;
 import org.folio.rest.tools.utils.TenantTool;
-import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
@@ -34,13 +47,20 @@ public class InstanceStorageAPI implements InstanceStorageResource {
   // Has to be lowercase because raml-module-builder uses case sensitive
   // lower case headers
   private static final String TENANT_HEADER = "x-okapi-tenant";
+  private static final List<String> REQUIRED_PROPERTIES =
+    Collections.singletonList("title");
   private static final String BLANK_TENANT_MESSAGE = "Tenant Must Be Provided";
+  private static final String VERSION_NOT_MATCHED_MESSAGE =
+    "Instance does not exist or has been changed since the version in If-Match";
 
   @Override
   public void getInstanceStorageInstances(
     @DefaultValue("0") @Min(0L) @Max(1000L) int offset,
     @DefaultValue("10") @Min(1L) @Max(100L) int limit,
     String query,
+    String cursor,
+    @DefaultValue("exact") String totalRecords,
+    String modifiedSince,
     @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
     Map<String, String> okapiHeaders,
     Handler<AsyncResult<Response>> asyncResultHandler,
@@ -54,43 +74,97 @@ public class InstanceStorageAPI implements InstanceStorageResource {
       return;
     }
 
+    if (modifiedSince != null) {
+      String invalidModifiedSinceMessage =
+        ChangeFeed.invalidChangedSinceMessage(modifiedSince);
+
+      if (invalidModifiedSinceMessage != null) {
+        badRequestResult(asyncResultHandler, invalidModifiedSinceMessage);
+
+        return;
+      }
+
+      if (cursor != null && !KeysetPage.isValidChangedCursor(cursor)) {
+        badRequestResult(asyncResultHandler, "Invalid cursor: " + cursor);
+
+        return;
+      }
+    }
+    else if (cursor != null && !KeysetPage.isValidCursor(cursor)) {
+      badRequestResult(asyncResultHandler, "Invalid cursor: " + cursor);
+
+      return;
+    }
+
+    if (!TotalRecords.isValidMode(totalRecords)) {
+      badRequestResult(asyncResultHandler, "totalRecords must be one of none, estimate or exact");
+
+      return;
+    }
+
     try {
       vertxContext.runOnContext(v -> {
         try {
-          PostgresClient postgresClient = PostgresClient.getInstance(
-            vertxContext.owner(), TenantTool.calculateTenantId(tenantId));
+          String whereClause = CqlTranslationCache.whereClause("instance", query);
 
-          String[] fieldList = {"*"};
+          if(modifiedSince != null) {
+            getChangedInstances(whereClause, modifiedSince, cursor, limit,
+              tenantId, asyncResultHandler, vertxContext);
 
-          CQL2PgJSON cql2pgJson = new CQL2PgJSON("instance.jsonb");
-          CQLWrapper cql = new CQLWrapper(cql2pgJson, query)
-            .setLimit(new Limit(limit))
-            .setOffset(new Offset(offset));
+            return;
+          }
 
-          postgresClient.get("instance", Instance.class, fieldList, cql,
-            true, false, reply -> {
-              try {
+          if(cursor != null) {
+            KeysetPage.fetch(vertxContext.owner(), tenantId, "instance",
+              whereClause, cursor, limit, reply -> {
                 if(reply.succeeded()) {
-                  List<Instance> instances = (List<Instance>) reply.result()[0];
-
                   Instances instanceList = new Instances();
-                  instanceList.setInstances(instances);
-                  instanceList.setTotalRecords((Integer)reply.result()[1]);
+                  instanceList.setInstances(
+                    reply.result().getRecords(Instance.class));
+                  instanceList.setNextCursor(reply.result().getNextCursor());
 
-                  asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+                  asyncResultHandler.handle(Future.succeededFuture(
                     InstanceStorageResource.GetInstanceStorageInstancesResponse.
                       withJsonOK(instanceList)));
                 }
                 else {
-                  asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+                  asyncResultHandler.handle(Future.succeededFuture(
                     InstanceStorageResource.GetInstanceStorageInstancesResponse.
                       withPlainInternalServerError(reply.cause().getMessage())));
                 }
-              } catch (Exception e) {
-                e.printStackTrace();
+              });
+
+            return;
+          }
+
+          TotalRecords totals = new TotalRecords(vertxContext.owner(),
+            tenantId, "instance", query, totalRecords);
+
+          boolean count = totals.needsCount();
+
+          //keyword searches on title are ordered by how well they match
+          String rankedWhereClause =
+            CqlTranslationCache.rankedWhereClause("instance", query);
+
+          OffsetPage.fetch(vertxContext.owner(), tenantId, "instance",
+            rankedWhereClause, offset, limit, count, reply -> {
+              if(reply.succeeded()) {
+                List<Instance> instances = reply.result().getRecords(Instance.class);
+
+                totals.resolve(reply.result().getTotalRecords(), total -> {
+                  Instances instanceList = new Instances();
+                  instanceList.setInstances(instances);
+                  instanceList.setTotalRecords(total.result());
+
+                  asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+                    InstanceStorageResource.GetInstanceStorageInstancesResponse.
+                      withJsonOK(instanceList)));
+                });
+              }
+              else {
                 asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
                   InstanceStorageResource.GetInstanceStorageInstancesResponse.
-                    withPlainInternalServerError(e.getMessage())));
+                    withPlainInternalServerError(reply.cause().getMessage())));
               }
             });
         } catch (Exception e) {
@@ -108,6 +182,54 @@ public class InstanceStorageAPI implements InstanceStorageResource {
     }
   }
 
+  private void getChangedInstances(
+    String whereClause,
+    String modifiedSince,
+    String cursor,
+    int limit,
+    String tenantId,
+    Handler<AsyncResult<Response>> asyncResultHandler,
+    Context vertxContext) {
+
+    Handler<Throwable> failed = cause -> asyncResultHandler.handle(
+      Future.succeededFuture(GetInstanceStorageInstancesResponse
+        .withPlainInternalServerError(cause.getMessage())));
+
+    KeysetPage.fetchChangedSince(vertxContext.owner(), tenantId, "instance",
+      whereClause, modifiedSince, cursor, limit, reply -> {
+        if(reply.failed()) {
+          failed.handle(reply.cause());
+          return;
+        }
+
+        Instances instanceList = new Instances();
+        instanceList.setInstances(reply.result().getRecords(Instance.class));
+        instanceList.setNextCursor(reply.result().getNextCursor());
+        instanceList.setNextModifiedSince(reply.result().getChangedUntil());
+
+        //deleted instances are only listed on the first page
+        if(cursor != null && !KeysetPage.FIRST_PAGE_CURSOR.equals(cursor)) {
+          asyncResultHandler.handle(Future.succeededFuture(
+            GetInstanceStorageInstancesResponse.withJsonOK(instanceList)));
+
+          return;
+        }
+
+        ChangeFeed.deletedSince(vertxContext.owner(), tenantId, "instance",
+          modifiedSince, deleted -> {
+            if(deleted.failed()) {
+              failed.handle(deleted.cause());
+              return;
+            }
+
+            instanceList.setDeletedIds(deleted.result());
+
+            asyncResultHandler.handle(Future.succeededFuture(
+              GetInstanceStorageInstancesResponse.withJsonOK(instanceList)));
+          });
+      });
+  }
+
   @Override
   public void postInstanceStorageInstances(
     @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
@@ -143,32 +265,41 @@ public class InstanceStorageAPI implements InstanceStorageResource {
             }
           }
 
-          postgresClient.save("instance", entity.getId(), entity,
-            reply -> {
-              try {
-                if(reply.succeeded()) {
-                  OutStream stream = new OutStream();
-                  stream.setData(entity);
+          Handler<AsyncResult<String>> onSaved = reply -> {
+            try {
+              if(reply.succeeded()) {
+                TotalRecords.invalidate(tenantId, "instance");
+
+                OutStream stream = new OutStream();
+                stream.setData(entity);
 
-                  asyncResultHandler.handle(
-                    io.vertx.core.Future.succeededFuture(
-                      InstanceStorageResource.PostInstanceStorageInstancesResponse
-                        .withJsonCreated(reply.result(), stream)));
-                }
-                else {
-                  asyncResultHandler.handle(
-                    io.vertx.core.Future.succeededFuture(
-                      InstanceStorageResource.PostInstanceStorageInstancesResponse
-                        .withPlainBadRequest("ID must be a UUID")));
-                }
-              } catch (Exception e) {
-                e.printStackTrace();
                 asyncResultHandler.handle(
                   io.vertx.core.Future.succeededFuture(
                     InstanceStorageResource.PostInstanceStorageInstancesResponse
-                      .withPlainInternalServerError(e.getMessage())));
+                      .withJsonCreated(reply.result(), stream)));
               }
-            });
+              else {
+                asyncResultHandler.handle(
+                  io.vertx.core.Future.succeededFuture(
+                    InstanceStorageResource.PostInstanceStorageInstancesResponse
+                      .withPlainBadRequest("ID must be a UUID")));
+              }
+            } catch (Exception e) {
+              e.printStackTrace();
+              asyncResultHandler.handle(
+                io.vertx.core.Future.succeededFuture(
+                  InstanceStorageResource.PostInstanceStorageInstancesResponse
+                    .withPlainInternalServerError(e.getMessage())));
+            }
+          };
+
+          if(WriteCoalescer.isEnabled()) {
+            WriteCoalescer.insert(vertxContext.owner(), tenantId, "instance",
+              entity.getId(), entity, onSaved);
+          }
+          else {
+            postgresClient.save("instance", entity.getId(), entity, onSaved);
+          }
         } catch (Exception e) {
           e.printStackTrace();
           asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
@@ -184,8 +315,113 @@ public class InstanceStorageAPI implements InstanceStorageResource {
     }
   }
 
+  @Override
+  public void postInstanceStorageInstancesBatch(
+    @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
+    Instancebatch entity,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> asyncResultHandler,
+    Context vertxContext) throws Exception {
+
+    String tenantId = okapiHeaders.get(TENANT_HEADER);
+
+    if (blankTenantId(tenantId)) {
+      badRequestResult(asyncResultHandler, BLANK_TENANT_MESSAGE);
+
+      return;
+    }
+
+    vertxContext.runOnContext(v -> {
+      try {
+        BatchInsert<Instance> batch = new BatchInsert<>(entity.getInstances(),
+          Instance::getId, Instance::setId);
+
+        batch.insert(vertxContext.owner(), tenantId, "instance", reply -> {
+          if(reply.succeeded()) {
+            TotalRecords.invalidate(tenantId, "instance");
+
+            asyncResultHandler.handle(Future.succeededFuture(
+              PostInstanceStorageInstancesBatchResponse
+                .withJsonOK(reply.result())));
+          }
+          else {
+            asyncResultHandler.handle(Future.succeededFuture(
+              PostInstanceStorageInstancesBatchResponse
+                .withPlainInternalServerError(reply.cause().getMessage())));
+          }
+        });
+      } catch (Exception e) {
+        e.printStackTrace();
+        asyncResultHandler.handle(Future.succeededFuture(
+          PostInstanceStorageInstancesBatchResponse
+            .withPlainInternalServerError(e.getMessage())));
+      }
+    });
+  }
+
+  @Override
+  public void postInstanceStorageInstancesLoad(
+    @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
+    InputStream entity,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> asyncResultHandler,
+    Context vertxContext)
+    throws Exception {
+
+    String tenantId = okapiHeaders.get(TENANT_HEADER);
+
+    if (blankTenantId(tenantId)) {
+      badRequestResult(asyncResultHandler, BLANK_TENANT_MESSAGE);
+
+      return;
+    }
+
+    vertxContext.runOnContext(v -> {
+      try {
+        new BulkLoad("instance")
+          .require(REQUIRED_PROPERTIES)
+          .strings(REQUIRED_PROPERTIES)
+          .load(vertxContext.owner(), tenantId, BulkLoad.text(entity), reply -> {
+            if(reply.failed()) {
+              String message = reply.cause().getMessage();
+
+              if(BulkLoad.isInvalidInput(message)) {
+                asyncResultHandler.handle(Future.succeededFuture(
+                  PostInstanceStorageInstancesLoadResponse
+                    .withPlainBadRequest("unable to load instances -- " + message)));
+              }
+              else {
+                asyncResultHandler.handle(Future.succeededFuture(
+                  PostInstanceStorageInstancesLoadResponse
+                    .withPlainInternalServerError(message)));
+              }
+              return;
+            }
+
+            if(!reply.result().getProblems().isEmpty()) {
+              asyncResultHandler.handle(Future.succeededFuture(
+                PostInstanceStorageInstancesLoadResponse.withJsonBadRequest(reply.result())));
+              return;
+            }
+
+            TotalRecords.invalidate(tenantId, "instance");
+
+            asyncResultHandler.handle(Future.succeededFuture(
+              PostInstanceStorageInstancesLoadResponse.withJsonOK(reply.result())));
+          });
+      }
+      catch (Exception e) {
+        e.printStackTrace();
+        asyncResultHandler.handle(Future.succeededFuture(
+          PostInstanceStorageInstancesLoadResponse
+            .withPlainInternalServerError(e.getMessage())));
+      }
+    });
+  }
+
   @Override
   public void deleteInstanceStorageInstances(
+    String query,
     @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
     Map<String, String> okapiHeaders,
     Handler<AsyncResult<Response>> asyncResultHandler,
@@ -199,6 +435,12 @@ public class InstanceStorageAPI implements InstanceStorageResource {
       return;
     }
 
+    if (query != null && !query.trim().isEmpty()) {
+      deleteInstancesMatching(query, tenantId, asyncResultHandler, vertxContext);
+
+      return;
+    }
+
     vertxContext.runOnContext(v -> {
       try {
         PostgresClient postgresClient = PostgresClient.getInstance(
@@ -207,6 +449,8 @@ public class InstanceStorageAPI implements InstanceStorageResource {
         postgresClient.mutate(String.format("TRUNCATE TABLE %s_%s.instance",
           tenantId, "inventory_storage"),
           reply -> {
+            TotalRecords.invalidate(tenantId, "instance");
+
             asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
               InstanceStorageResource.DeleteInstanceStorageInstancesResponse
                 .noContent().build()));
@@ -220,9 +464,51 @@ public class InstanceStorageAPI implements InstanceStorageResource {
     });
   }
 
+  private void deleteInstancesMatching(
+    String query,
+    String tenantId,
+    Handler<AsyncResult<Response>> asyncResultHandler,
+    Context vertxContext) {
+
+    String whereClause;
+
+    try {
+      whereClause = CqlTranslationCache.whereClause("instance", query);
+    }
+    catch(Exception e) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        DeleteInstanceStorageInstancesResponse.withPlainBadRequest(
+          "CQL Parsing Error for '" + query + "': " + e.getLocalizedMessage())));
+
+      return;
+    }
+
+    vertxContext.runOnContext(v ->
+      BulkDelete.delete(vertxContext.owner(), tenantId, "instance", whereClause,
+        reply -> {
+          if(reply.succeeded()) {
+            if(reply.result() > 0) {
+              TotalRecords.invalidate(tenantId, "instance");
+            }
+
+            Deleteresult result = new Deleteresult();
+            result.setDeletedRecords(reply.result());
+
+            asyncResultHandler.handle(Future.succeededFuture(
+              DeleteInstanceStorageInstancesResponse.withJsonOK(result)));
+          }
+          else {
+            asyncResultHandler.handle(Future.succeededFuture(
+              DeleteInstanceStorageInstancesResponse
+                .withPlainInternalServerError(reply.cause().getMessage())));
+          }
+        }));
+  }
+
   @Override
   public void getInstanceStorageInstancesByInstanceId(
     @NotNull String instanceId,
+    String ifNoneMatch,
     @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
     Map<String, String> okapiHeaders,
     Handler<AsyncResult<Response>> asyncResultHandler,
@@ -236,45 +522,46 @@ public class InstanceStorageAPI implements InstanceStorageResource {
       return;
     }
 
-    try {
-      PostgresClient postgresClient = PostgresClient.getInstance(
-        vertxContext.owner(), TenantTool.calculateTenantId(tenantId));
-
-      Criteria a = new Criteria();
-
-      a.addField("'id'");
-      a.setOperation("=");
-      a.setValue(instanceId);
+    if(!isUUID(instanceId)) {
+      asyncResultHandler.handle(
+        Future.succeededFuture(
+          InstanceStorageResource.GetInstanceStorageInstancesByInstanceIdResponse.
+            withPlainNotFound("Not Found")));
 
-      Criterion criterion = new Criterion(a);
+      return;
+    }
 
+    try {
       vertxContext.runOnContext(v -> {
         try {
-          postgresClient.get("instance", Instance.class, criterion, true, false,
-            reply -> {
+          VersionedRecord.fetch(vertxContext.owner(), tenantId, "instance",
+            instanceId, reply -> {
               try {
-                if (reply.succeeded()) {
-                  List<Instance> instanceList = (List<Instance>) reply.result()[0];
-                  if (instanceList.size() == 1) {
-                    Instance instance = instanceList.get(0);
-
-                    asyncResultHandler.handle(
-                      io.vertx.core.Future.succeededFuture(
-                        InstanceStorageResource.GetInstanceStorageInstancesByInstanceIdResponse.
-                          withJsonOK(instance)));
-                  }
-                  else {
+                if (reply.failed()) {
                   asyncResultHandler.handle(
                     Future.succeededFuture(
                       InstanceStorageResource.GetInstanceStorageInstancesByInstanceIdResponse.
-                        withPlainNotFound("Not Found")));
-                  }
-                } else {
+                        withPlainInternalServerError(reply.cause().getMessage())));
+                }
+                else if (reply.result() == null) {
                   asyncResultHandler.handle(
                     Future.succeededFuture(
                       InstanceStorageResource.GetInstanceStorageInstancesByInstanceIdResponse.
-                        withPlainInternalServerError(reply.cause().getMessage())));
+                        withPlainNotFound("Not Found")));
+                }
+                else if (reply.result().isMatchedBy(ifNoneMatch)) {
+                  asyncResultHandler.handle(
+                    Future.succeededFuture(reply.result().withETag(
+                      InstanceStorageResource.GetInstanceStorageInstancesByInstanceIdResponse.
+                        withNotModified())));
+                }
+                else {
+                  Instance instance = reply.result().getRecord(Instance.class);
 
+                  asyncResultHandler.handle(
+                    Future.succeededFuture(reply.result().withETag(
+                      InstanceStorageResource.GetInstanceStorageInstancesByInstanceIdResponse.
+                        withJsonOK(instance))));
                 }
               } catch (Exception e) {
                 e.printStackTrace();
@@ -332,6 +619,8 @@ public class InstanceStorageAPI implements InstanceStorageResource {
           postgresClient.delete("instance", criterion,
             reply -> {
               if(reply.succeeded()) {
+                TotalRecords.invalidate(tenantId, "instance");
+
                 asyncResultHandler.handle(
                   Future.succeededFuture(
                     DeleteInstanceStorageInstancesByInstanceIdResponse
@@ -359,6 +648,7 @@ public class InstanceStorageAPI implements InstanceStorageResource {
   @Override
   public void putInstanceStorageInstancesByInstanceId(
     @NotNull String instanceId,
+    String ifMatch,
     @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
     Instance entity,
     Map<String, String> okapiHeaders,
@@ -373,101 +663,68 @@ public class InstanceStorageAPI implements InstanceStorageResource {
       return;
     }
 
-    try {
-      PostgresClient postgresClient =
-        PostgresClient.getInstance(
-          vertxContext.owner(), TenantTool.calculateTenantId(tenantId));
+    if(!isUUID(instanceId)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        PutInstanceStorageInstancesByInstanceIdResponse
+          .withPlainBadRequest("ID must be a UUID")));
 
-      Criteria a = new Criteria();
+      return;
+    }
 
-      a.addField("'id'");
-      a.setOperation("=");
-      a.setValue(instanceId);
+    if(ifMatch != null && !VersionedRecord.canMatch(ifMatch)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        PutInstanceStorageInstancesByInstanceIdResponse
+          .withPlainPreconditionFailed(VERSION_NOT_MATCHED_MESSAGE)));
 
-      Criterion criterion = new Criterion(a);
+      return;
+    }
+
+    entity.setId(instanceId);
+
+    Handler<AsyncResult<Upsert.Outcome>> onUpsert = reply -> {
+      try {
+        if(reply.failed()) {
+          asyncResultHandler.handle(
+            Future.succeededFuture(
+              PutInstanceStorageInstancesByInstanceIdResponse
+                .withPlainInternalServerError(
+                  reply.cause().getMessage())));
+        }
+        else if(reply.result() == Upsert.Outcome.VERSION_NOT_MATCHED) {
+          asyncResultHandler.handle(
+            Future.succeededFuture(
+              PutInstanceStorageInstancesByInstanceIdResponse
+                .withPlainPreconditionFailed(VERSION_NOT_MATCHED_MESSAGE)));
+        }
+        else {
+          if(reply.result() == Upsert.Outcome.CREATED) {
+            TotalRecords.invalidate(tenantId, "instance");
+          }
+
+          asyncResultHandler.handle(
+            Future.succeededFuture(
+              PutInstanceStorageInstancesByInstanceIdResponse
+                .withNoContent()));
+        }
+      } catch (Exception e) {
+        asyncResultHandler.handle(
+          Future.succeededFuture(
+            PutInstanceStorageInstancesByInstanceIdResponse
+              .withPlainInternalServerError(e.getMessage())));
+      }
+    };
 
+    try {
       vertxContext.runOnContext(v -> {
         try {
-          postgresClient.get("instance", Instance.class, criterion, true, false,
-            reply -> {
-              if(reply.succeeded()) {
-                List<Instance> itemList = (List<Instance>) reply.result()[0];
-
-                if (itemList.size() == 1) {
-                  try {
-                    postgresClient.update("instance", entity, criterion,
-                      true,
-                      update -> {
-                        try {
-                          if(update.succeeded()) {
-                            OutStream stream = new OutStream();
-                            stream.setData(entity);
-
-                            asyncResultHandler.handle(
-                              Future.succeededFuture(
-                                PutInstanceStorageInstancesByInstanceIdResponse
-                                  .withNoContent()));
-                          }
-                          else {
-                            asyncResultHandler.handle(
-                              Future.succeededFuture(
-                                PutInstanceStorageInstancesByInstanceIdResponse
-                                  .withPlainInternalServerError(
-                                    update.cause().getMessage())));
-                          }
-                        } catch (Exception e) {
-                          asyncResultHandler.handle(
-                            Future.succeededFuture(
-                              PutInstanceStorageInstancesByInstanceIdResponse
-                                .withPlainInternalServerError(e.getMessage())));
-                        }
-                      });
-                  } catch (Exception e) {
-                    asyncResultHandler.handle(Future.succeededFuture(
-                      PutInstanceStorageInstancesByInstanceIdResponse
-                        .withPlainInternalServerError(e.getMessage())));
-                  }
-              }
-              else {
-                try {
-                  postgresClient.save("instance", entity.getId(), entity,
-                    save -> {
-                      try {
-                        if(save.succeeded()) {
-                          OutStream stream = new OutStream();
-                          stream.setData(entity);
-
-                          asyncResultHandler.handle(
-                            Future.succeededFuture(
-                              PutInstanceStorageInstancesByInstanceIdResponse
-                                .withNoContent()));
-                        }
-                        else {
-                          asyncResultHandler.handle(
-                            Future.succeededFuture(
-                              PutInstanceStorageInstancesByInstanceIdResponse
-                                .withPlainInternalServerError(
-                                  save.cause().getMessage())));
-                        }
-                      } catch (Exception e) {
-                        asyncResultHandler.handle(
-                          Future.succeededFuture(
-                            PutInstanceStorageInstancesByInstanceIdResponse
-                              .withPlainInternalServerError(e.getMessage())));
-                      }
-                    });
-                } catch (Exception e) {
-                  asyncResultHandler.handle(Future.succeededFuture(
-                    PutInstanceStorageInstancesByInstanceIdResponse
-                      .withPlainInternalServerError(e.getMessage())));
-                }
-              }
-            } else {
-                asyncResultHandler.handle(Future.succeededFuture(
-                  PutInstanceStorageInstancesByInstanceIdResponse
-                    .withPlainInternalServerError(reply.cause().getMessage())));
-            }
-          });
+          if(ifMatch == null) {
+            Upsert.upsert(vertxContext.owner(), tenantId, "instance", instanceId,
+              entity, onUpsert);
+          }
+          else {
+            Upsert.replace(vertxContext.owner(), tenantId, "instance", instanceId,
+              entity, VersionedRecord.versionsFrom(ifMatch), onUpsert);
+          }
         } catch (Exception e) {
           asyncResultHandler.handle(Future.succeededFuture(
             PutInstanceStorageInstancesByInstanceIdResponse
@@ -481,6 +738,50 @@ public class InstanceStorageAPI implements InstanceStorageResource {
     }
   }
 
+  @Override
+  public void getInstanceStorageChanges(
+    String since,
+    @DefaultValue("100") @Min(1L) @Max(1000L) int limit,
+    @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> asyncResultHandler,
+    Context vertxContext) throws Exception {
+
+    String tenantId = okapiHeaders.get(TENANT_HEADER);
+
+    if (blankTenantId(tenantId)) {
+      badRequestResult(asyncResultHandler, BLANK_TENANT_MESSAGE);
+
+      return;
+    }
+
+    if (!ChangeFeed.isValidResumeToken(since)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        GetInstanceStorageChangesResponse.withPlainBadRequest(
+          "Invalid resume token: " + since)));
+
+      return;
+    }
+
+    vertxContext.runOnContext(v ->
+      ChangeFeed.fetch(vertxContext.owner(), tenantId, "instance", since, limit,
+        reply -> {
+          if(reply.succeeded()) {
+            Changes changes = new Changes();
+            changes.setChanges(reply.result().getChanges(Change.class));
+            changes.setResumeToken(reply.result().getResumeToken());
+
+            asyncResultHandler.handle(Future.succeededFuture(
+              GetInstanceStorageChangesResponse.withJsonOK(changes)));
+          }
+          else {
+            asyncResultHandler.handle(Future.succeededFuture(
+              GetInstanceStorageChangesResponse.withPlainInternalServerError(
+                reply.cause().getMessage())));
+          }
+        }));
+  }
+
   private void badRequestResult(
     Handler<AsyncResult<Response>> asyncResultHandler, String message) {
     asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
@@ -1,39 +1,69 @@
 package org.folio.rest.impl;
 
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import javax.validation.Validation;
+import javax.validation.Validator;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import javax.ws.rs.DefaultValue;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
 import org.folio.rest.annotations.Validate;
+import org.folio.rest.jaxrs.model.Change;
+import org.folio.rest.jaxrs.model.Changes;
+import org.folio.rest.jaxrs.model.Deleteresult;
+import org.folio.rest.jaxrs.model.Facetgroup;
+import org.folio.rest.jaxrs.model.Facets;
 import org.folio.rest.jaxrs.model.Item;
+import org.folio.rest.jaxrs.model.Itembatch;
 import org.folio.rest.jaxrs.model.Items;
-import org.folio.rest.jaxrs.model.Mtype;
+import org.folio.rest.jaxrs.model.Itempatch;
+import org.folio.rest.jaxrs.model.Itemretrieval;
 import org.folio.rest.jaxrs.resource.ItemStorageResource;
 import org.folio.rest.persist.PostgresClient;
 import org.folio.rest.persist.Criteria.Criteria;
 import org.folio.rest.persist.Criteria.Criterion;
-import org.folio.rest.persist.Criteria.Limit;
-import org.folio.rest.persist.Criteria.Offset;
-import org.folio.rest.persist.cql.CQLWrapper;
+import org.folio.rest.support.BatchInsert;
+import org.folio.rest.support.BulkDelete;
+import org.folio.rest.support.BulkLoad;
+import org.folio.rest.support.ChangeFeed;
+import org.folio.rest.support.CqlTranslationCache;
+import org.folio.rest.support.FacetCounts;
+import org.folio.rest.support.KeysetPage;
+import org.folio.rest.support.MaterialTypeCache;
+import org.folio.rest.support.MergePatch;
+import org.folio.rest.support.MultiGet;
+import org.folio.rest.support.OffsetPage;
+import org.folio.rest.support.StorageSql;
+import org.folio.rest.support.TotalRecords;
+import org.folio.rest.support.Upsert;
+import org.folio.rest.support.VersionedRecord;
+import org.folio.rest.support.WriteCoalescer;
 import org.folio.rest.tools.messages.Messages;
 import org.folio.rest.tools.utils.OutStream;
 import org.folio.rest.tools.utils.TenantTool;
-import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
-import io.vertx.core.Vertx;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 
@@ -42,9 +72,19 @@ public class ItemStorageAPI implements ItemStorageResource {
   // Has to be lowercase because raml-module-builder uses case sensitive
   // lower case headers
   public static final String ITEM_TABLE = "item";
+  private static final String BARCODE_UNIQUE_INDEX = "item_barcode_unique_idx";
+  private static final String MATERIAL_TYPE_FOREIGN_KEY = "item_materialtypeid_fkey";
+  private static final List<String> REQUIRED_PROPERTIES =
+    Arrays.asList("instanceId", "barcode");
+  private static final List<String> STRING_PROPERTIES =
+    Arrays.asList("instanceId", "title", "barcode", "materialTypeId");
   private static final String TENANT_HEADER = "x-okapi-tenant";
   private static final String BLANK_TENANT_MESSAGE = "Tenant Must Be Provided";
+  private static final String VERSION_NOT_MATCHED_MESSAGE =
+    "Item does not exist or has been changed since the version in If-Match";
   private static final Logger log = LoggerFactory.getLogger(ItemStorageAPI.class);
+  private static final Validator validator =
+    Validation.buildDefaultValidatorFactory().getValidator();
   private final Messages messages = Messages.getInstance();
 
   @Validate
@@ -53,6 +93,11 @@ public class ItemStorageAPI implements ItemStorageResource {
     @DefaultValue("0") @Min(0L) @Max(1000L) int offset,
     @DefaultValue("10") @Min(1L) @Max(100L) int limit,
     String query,
+    String cursor,
+    @DefaultValue("exact") String totalRecords,
+    String ids,
+    String instanceIds,
+    String modifiedSince,
     @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
     Map<String, String> okapiHeaders,
     Handler<AsyncResult<Response>> asyncResultHandler,
@@ -67,29 +112,63 @@ public class ItemStorageAPI implements ItemStorageResource {
       return;
     }
 
+    if (modifiedSince != null) {
+      String invalidModifiedSinceMessage =
+        ChangeFeed.invalidChangedSinceMessage(modifiedSince);
+
+      if (invalidModifiedSinceMessage != null) {
+        badRequestResult(asyncResultHandler, invalidModifiedSinceMessage);
+
+        return;
+      }
+
+      if (cursor != null && !KeysetPage.isValidChangedCursor(cursor)) {
+        badRequestResult(asyncResultHandler, "Invalid cursor: " + cursor);
+
+        return;
+      }
+    }
+    else if (cursor != null && !KeysetPage.isValidCursor(cursor)) {
+      badRequestResult(asyncResultHandler, "Invalid cursor: " + cursor);
+
+      return;
+    }
+
+    if (!TotalRecords.isValidMode(totalRecords)) {
+      badRequestResult(asyncResultHandler, "totalRecords must be one of none, estimate or exact");
+
+      return;
+    }
+
+    if (ids != null || instanceIds != null) {
+      getItemsByIds(MultiGet.parse(ids), MultiGet.parse(instanceIds), query,
+        tenantId, asyncResultHandler, vertxContext,
+        GetItemStorageItemsResponse::withJsonOK,
+        GetItemStorageItemsResponse::withPlainBadRequest,
+        GetItemStorageItemsResponse::withPlainInternalServerError);
+
+      return;
+    }
+
     try {
       vertxContext.runOnContext(v -> {
         try {
-          PostgresClient postgresClient = PostgresClient.getInstance(
-            vertxContext.owner(), TenantTool.calculateTenantId(tenantId));
-
-          String[] fieldList = {"*"};
+          String whereClause = CqlTranslationCache.whereClause(ITEM_TABLE, query);
 
-          CQL2PgJSON cql2pgJson = new CQL2PgJSON("item.jsonb");
-          CQLWrapper cql = new CQLWrapper(cql2pgJson, query)
-            .setLimit(new Limit(limit))
-            .setOffset(new Offset(offset));
+          if(modifiedSince != null) {
+            getChangedItems(whereClause, modifiedSince, cursor, limit,
+              tenantId, asyncResultHandler, vertxContext);
 
-          postgresClient.get("item", Item.class, fieldList, cql, true, false,
-            reply -> {
-              try {
+            return;
+          }
 
+          if(cursor != null) {
+            KeysetPage.fetch(vertxContext.owner(), tenantId, ITEM_TABLE,
+              whereClause, cursor, limit, reply -> {
                 if(reply.succeeded()) {
-                  List<Item> items = (List<Item>) reply.result()[0];
-
                   Items itemList = new Items();
-                  itemList.setItems(items);
-                  itemList.setTotalRecords((Integer) reply.result()[1]);
+                  itemList.setItems(reply.result().getRecords(Item.class));
+                  itemList.setNextCursor(reply.result().getNextCursor());
 
                   asyncResultHandler.handle(Future.succeededFuture(
                     ItemStorageResource.GetItemStorageItemsResponse.
@@ -100,17 +179,35 @@ public class ItemStorageAPI implements ItemStorageResource {
                     ItemStorageResource.GetItemStorageItemsResponse.
                       withPlainInternalServerError(reply.cause().getMessage())));
                 }
-              } catch (Exception e) {
-                if(e.getCause() != null && e.getCause().getClass().getSimpleName().contains("CQLParseException")) {
-                  asyncResultHandler.handle(Future.succeededFuture(
-                    GetItemStorageItemsResponse.withPlainBadRequest(
-                      "CQL Parsing Error for '" + query + "': " + e.getLocalizedMessage())));
-                }
-                else {
+              });
+
+            return;
+          }
+
+          TotalRecords totals = new TotalRecords(vertxContext.owner(),
+            tenantId, ITEM_TABLE, query, totalRecords);
+
+          boolean count = totals.needsCount();
+
+          OffsetPage.fetch(vertxContext.owner(), tenantId, ITEM_TABLE,
+            whereClause, offset, limit, count, reply -> {
+              if(reply.succeeded()) {
+                List<Item> items = reply.result().getRecords(Item.class);
+
+                totals.resolve(reply.result().getTotalRecords(), total -> {
+                  Items itemList = new Items();
+                  itemList.setItems(items);
+                  itemList.setTotalRecords(total.result());
+
                   asyncResultHandler.handle(Future.succeededFuture(
                     ItemStorageResource.GetItemStorageItemsResponse.
-                      withPlainInternalServerError("Error")));
-                }
+                      withJsonOK(itemList)));
+                });
+              }
+              else {
+                asyncResultHandler.handle(Future.succeededFuture(
+                  ItemStorageResource.GetItemStorageItemsResponse.
+                    withPlainInternalServerError(reply.cause().getMessage())));
               }
             });
         }
@@ -145,39 +242,54 @@ public class ItemStorageAPI implements ItemStorageResource {
   }
 
   /**
-   *
-   * @param vertx
-   * @param tenantId
-   * @param item
-   * @param handler
-   * @throws Exception
+   * Responds with a page of the items changed since a point in time,
+   * the first page also lists the items deleted since then
    */
-  private void getMT(Vertx vertx, String tenantId, Item item, Handler<AsyncResult<Integer>> handler) throws Exception{
-    Mtype mtype = new Mtype();
-    String mtID = item.getMaterialTypeId();
-    if(mtID == null){
-      //allow null material types so that they can be added after a record is created
-      handler.handle(io.vertx.core.Future.succeededFuture(1));
-    }else{
-      mtype.setId(mtID);
-      /** check if the material type exists, if not, can not add the item **/
-      PostgresClient.getInstance(vertx, tenantId).get(
-        MaterialTypeAPI.MATERIAL_TYPE_TABLE, mtype, new String[]{"_id"}, true, false, 0, 1, check -> {
-          if(check.succeeded()){
-            List<Mtype> mtypeList0 = (List<Mtype>) check.result()[0];
-            if(mtypeList0.size() == 0){
-              handler.handle(io.vertx.core.Future.succeededFuture(0));
-            }
-            else{
-              handler.handle(io.vertx.core.Future.succeededFuture(1));
+  private void getChangedItems(
+    String whereClause,
+    String modifiedSince,
+    String cursor,
+    int limit,
+    String tenantId,
+    Handler<AsyncResult<Response>> asyncResultHandler,
+    Context vertxContext) {
+
+    Handler<Throwable> failed = cause -> asyncResultHandler.handle(
+      Future.succeededFuture(GetItemStorageItemsResponse
+        .withPlainInternalServerError(cause.getMessage())));
+
+    KeysetPage.fetchChangedSince(vertxContext.owner(), tenantId, ITEM_TABLE,
+      whereClause, modifiedSince, cursor, limit, reply -> {
+        if(reply.failed()) {
+          failed.handle(reply.cause());
+          return;
+        }
+
+        Items itemList = new Items();
+        itemList.setItems(reply.result().getRecords(Item.class));
+        itemList.setNextCursor(reply.result().getNextCursor());
+        itemList.setNextModifiedSince(reply.result().getChangedUntil());
+
+        if(cursor != null && !KeysetPage.FIRST_PAGE_CURSOR.equals(cursor)) {
+          asyncResultHandler.handle(Future.succeededFuture(
+            GetItemStorageItemsResponse.withJsonOK(itemList)));
+
+          return;
+        }
+
+        ChangeFeed.deletedSince(vertxContext.owner(), tenantId, ITEM_TABLE,
+          modifiedSince, deleted -> {
+            if(deleted.failed()) {
+              failed.handle(deleted.cause());
+              return;
             }
-          }
-          else{
-            log.error(check.cause().getLocalizedMessage(), check.cause());
-            handler.handle(io.vertx.core.Future.succeededFuture(-1));
-          }
+
+            itemList.setDeletedIds(deleted.result());
+
+            asyncResultHandler.handle(Future.succeededFuture(
+              GetItemStorageItemsResponse.withJsonOK(itemList)));
+          });
       });
-    }
   }
 
   @Validate
@@ -198,6 +310,17 @@ public class ItemStorageAPI implements ItemStorageResource {
       return;
     }
 
+    String materialTypeId = entity.getMaterialTypeId();
+
+    //material type is checked by the database, an ID which is not a UUID cannot match
+    if(materialTypeId != null && !StorageSql.isUUID(materialTypeId)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        ItemStorageResource.PostItemStorageItemsResponse
+          .withPlainBadRequest(materialTypeNotFoundMessage(materialTypeId))));
+
+      return;
+    }
+
     try {
       PostgresClient postgresClient =
         PostgresClient.getInstance(
@@ -209,69 +332,68 @@ public class ItemStorageAPI implements ItemStorageResource {
 
       vertxContext.runOnContext(v -> {
         try {
-          /**This should be replaced with a foreign key / cache since a lookup into the MT table
-           * every time an item is inserted is wasteful and slows down the insert process */
-          getMT(vertxContext.owner(), tenantId, entity, replyHandler -> {
-              int res = replyHandler.result();
-              if(res == 0){
-                String message = "Can not add " + entity.getMaterialTypeId() + ". Material type not found";
-                log.error(message);
-                asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(ItemStorageResource.PostItemStorageItemsResponse
-                  .withPlainBadRequest(message)));
-                return;
-              }
-              else if(res == -1){
-                asyncResultHandler.handle(Future.succeededFuture(
-                  ItemStorageResource.PostItemStorageItemsResponse
-                    .withPlainInternalServerError("")));
-                return;
-              }
-              else{
-                try {
-                  postgresClient.save("item", entity.getId(), entity,
-                    reply -> {
-                      try {
-                        if(reply.succeeded()) {
-                          OutStream stream = new OutStream();
-                          stream.setData(entity);
-
-                          asyncResultHandler.handle(
-                            Future.succeededFuture(
-                              ItemStorageResource.PostItemStorageItemsResponse
-                                .withJsonCreated(reply.result(), stream)));
-                        }
-                        else {
-                          String message = reply.cause().getMessage();
-
-                          if(message.contains("invalid input syntax for uuid")) {
-                            asyncResultHandler.handle(
-                              Future.succeededFuture(
-                                ItemStorageResource.PostItemStorageItemsResponse
-                                  .withPlainBadRequest(
-                                    "ID and instance ID must both be a UUID")));
-                          }
-                          else {
-                            asyncResultHandler.handle(
-                              Future.succeededFuture(
-                                ItemStorageResource.PostItemStorageItemsResponse
-                                  .withPlainInternalServerError(
-                                    reply.cause().getMessage())));
-                          }
-                        }
-                      } catch (Exception e) {
-                        asyncResultHandler.handle(
-                          Future.succeededFuture(
-                            ItemStorageResource.PostItemStorageItemsResponse
-                              .withPlainInternalServerError(e.getMessage())));
-                      }
-                    });
-                } catch (Exception e) {
-                  asyncResultHandler.handle(Future.succeededFuture(
+          Handler<AsyncResult<String>> onSaved = reply -> {
+            try {
+              if(reply.succeeded()) {
+                TotalRecords.invalidate(tenantId, ITEM_TABLE);
+
+                OutStream stream = new OutStream();
+                stream.setData(entity);
+
+                asyncResultHandler.handle(
+                  Future.succeededFuture(
                     ItemStorageResource.PostItemStorageItemsResponse
-                      .withPlainInternalServerError(e.getMessage())));
+                      .withJsonCreated(reply.result(), stream)));
+              }
+              else {
+                String message = reply.cause().getMessage();
+
+                if(message.contains("invalid input syntax for uuid")) {
+                  asyncResultHandler.handle(
+                    Future.succeededFuture(
+                      ItemStorageResource.PostItemStorageItemsResponse
+                        .withPlainBadRequest(
+                          "ID and instance ID must both be a UUID")));
+                }
+                else if(isDuplicateBarcode(message)) {
+                  asyncResultHandler.handle(
+                    Future.succeededFuture(
+                      ItemStorageResource.PostItemStorageItemsResponse
+                        .withPlainBadRequest(
+                          duplicateBarcodeMessage(entity))));
+                }
+                else if(isMaterialTypeNotFound(message)) {
+                  log.error(materialTypeNotFoundMessage(materialTypeId));
+
+                  asyncResultHandler.handle(
+                    Future.succeededFuture(
+                      ItemStorageResource.PostItemStorageItemsResponse
+                        .withPlainBadRequest(
+                          materialTypeNotFoundMessage(materialTypeId))));
+                }
+                else {
+                  asyncResultHandler.handle(
+                    Future.succeededFuture(
+                      ItemStorageResource.PostItemStorageItemsResponse
+                        .withPlainInternalServerError(
+                          reply.cause().getMessage())));
                 }
               }
-          });
+            } catch (Exception e) {
+              asyncResultHandler.handle(
+                Future.succeededFuture(
+                  ItemStorageResource.PostItemStorageItemsResponse
+                    .withPlainInternalServerError(e.getMessage())));
+            }
+          };
+
+          if(WriteCoalescer.isEnabled()) {
+            WriteCoalescer.insert(vertxContext.owner(), tenantId, ITEM_TABLE,
+              entity.getId(), entity, onSaved);
+          }
+          else {
+            postgresClient.save("item", entity.getId(), entity, onSaved);
+          }
         } catch (Exception e) {
           asyncResultHandler.handle(Future.succeededFuture(
             ItemStorageResource.PostItemStorageItemsResponse
@@ -285,10 +407,275 @@ public class ItemStorageAPI implements ItemStorageResource {
             .withPlainInternalServerError(e.getMessage())));
       }
   }
+
+  @Validate
+  @Override
+  public void postItemStorageItemsLoad(
+    @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
+    InputStream entity,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> asyncResultHandler,
+    Context vertxContext)
+    throws Exception {
+
+    String tenantId = okapiHeaders.get(TENANT_HEADER);
+
+    if (blankTenantId(tenantId)) {
+      badRequestResult(asyncResultHandler, BLANK_TENANT_MESSAGE);
+
+      return;
+    }
+
+    vertxContext.runOnContext(v -> {
+      try {
+        new BulkLoad(ITEM_TABLE)
+          .require(REQUIRED_PROPERTIES)
+          .strings(STRING_PROPERTIES)
+          .references("materialTypeId", MaterialTypeAPI.MATERIAL_TYPE_TABLE,
+            this::materialTypeNotFoundMessage)
+          .load(vertxContext.owner(), tenantId, BulkLoad.text(entity), reply -> {
+            if(reply.failed()) {
+              String message = reply.cause().getMessage();
+
+              if(BulkLoad.isInvalidInput(message)) {
+                asyncResultHandler.handle(Future.succeededFuture(
+                  PostItemStorageItemsLoadResponse
+                    .withPlainBadRequest("unable to load items -- " + message)));
+              }
+              else {
+                log.error(message, reply.cause());
+
+                asyncResultHandler.handle(Future.succeededFuture(
+                  PostItemStorageItemsLoadResponse
+                    .withPlainInternalServerError(message)));
+              }
+              return;
+            }
+
+            if(!reply.result().getProblems().isEmpty()) {
+              asyncResultHandler.handle(Future.succeededFuture(
+                PostItemStorageItemsLoadResponse.withJsonBadRequest(reply.result())));
+              return;
+            }
+
+            TotalRecords.invalidate(tenantId, ITEM_TABLE);
+
+            asyncResultHandler.handle(Future.succeededFuture(
+              PostItemStorageItemsLoadResponse.withJsonOK(reply.result())));
+          });
+      }
+      catch (Exception e) {
+        log.error(e.getMessage(), e);
+
+        asyncResultHandler.handle(Future.succeededFuture(
+          PostItemStorageItemsLoadResponse
+            .withPlainInternalServerError(e.getMessage())));
+      }
+    });
+  }
+
+  @Validate
+  @Override
+  public void postItemStorageItemsBatch(
+    @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
+    Itembatch entity,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> asyncResultHandler,
+    Context vertxContext)
+    throws Exception {
+
+    String tenantId = okapiHeaders.get(TENANT_HEADER);
+
+    if (blankTenantId(tenantId)) {
+      badRequestResult(asyncResultHandler, BLANK_TENANT_MESSAGE);
+
+      return;
+    }
+
+    vertxContext.runOnContext(v -> {
+      try {
+        //the material type cache can be out of date, so the foreign key is still relied upon
+        BatchInsert<Item> batch = new BatchInsert<>(entity.getItems(),
+          Item::getId, Item::setId)
+          .references(MATERIAL_TYPE_FOREIGN_KEY, Item::getMaterialTypeId,
+            this::materialTypeNotFoundMessage);
+
+        Set<String> materialTypeIds = batch.getRecords().stream()
+          .map(Item::getMaterialTypeId)
+          .filter(id -> id != null)
+          .collect(Collectors.toSet());
+
+        MaterialTypeCache.existing(vertxContext.owner(), tenantId, materialTypeIds,
+          materialTypes -> {
+            if(materialTypes.failed()) {
+              log.error(materialTypes.cause().getLocalizedMessage(),
+                materialTypes.cause());
+
+              asyncResultHandler.handle(Future.succeededFuture(
+                PostItemStorageItemsBatchResponse
+                  .withPlainInternalServerError(
+                    materialTypes.cause().getMessage())));
+              return;
+            }
+
+            List<Item> items = batch.getRecords();
+
+            for (int index = 0; index < items.size(); index++) {
+              String materialTypeId = items.get(index).getMaterialTypeId();
+
+              if(materialTypeId != null
+                && !materialTypes.result().contains(materialTypeId)) {
+
+                batch.reject(index, materialTypeNotFoundMessage(materialTypeId));
+              }
+            }
+
+            batch.insert(vertxContext.owner(), tenantId, ITEM_TABLE, reply -> {
+              if(reply.succeeded()) {
+                TotalRecords.invalidate(tenantId, ITEM_TABLE);
+
+                asyncResultHandler.handle(Future.succeededFuture(
+                  PostItemStorageItemsBatchResponse.withJsonOK(reply.result())));
+              }
+              else {
+                log.error(reply.cause().getLocalizedMessage(), reply.cause());
+
+                asyncResultHandler.handle(Future.succeededFuture(
+                  PostItemStorageItemsBatchResponse
+                    .withPlainInternalServerError(reply.cause().getMessage())));
+              }
+            });
+          });
+      }
+      catch (Exception e) {
+        asyncResultHandler.handle(Future.succeededFuture(
+          PostItemStorageItemsBatchResponse
+            .withPlainInternalServerError(e.getMessage())));
+      }
+    });
+  }
+
+  @Validate
+  @Override
+  public void postItemStorageItemsRetrieve(
+    @QueryParam("lang") @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
+    Itemretrieval entity,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> asyncResultHandler,
+    Context vertxContext)
+    throws Exception {
+
+    String tenantId = okapiHeaders.get(TENANT_HEADER);
+
+    if (blankTenantId(tenantId)) {
+      badRequestResult(asyncResultHandler, BLANK_TENANT_MESSAGE);
+
+      return;
+    }
+
+    getItemsByIds(entity.getIds(), entity.getInstanceIds(), entity.getQuery(),
+      tenantId, asyncResultHandler, vertxContext,
+      PostItemStorageItemsRetrieveResponse::withJsonOK,
+      PostItemStorageItemsRetrieveResponse::withPlainBadRequest,
+      PostItemStorageItemsRetrieveResponse::withPlainInternalServerError);
+  }
+
+  /**
+   * Responds with the items with any of the IDs, or belonging to any of the
+   * instances (only one of the lists can be used)
+   */
+  private void getItemsByIds(
+    List<String> ids,
+    List<String> instanceIds,
+    String query,
+    String tenantId,
+    Handler<AsyncResult<Response>> asyncResultHandler,
+    Context vertxContext,
+    Function<Items, Response> ok,
+    Function<String, Response> badRequest,
+    Function<String, Response> serverError) {
+
+    boolean byInstance = instanceIds != null && !instanceIds.isEmpty();
+
+    if (byInstance && ids != null && !ids.isEmpty()) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        badRequest.apply("Only one of ids or instanceIds can be used")));
+
+      return;
+    }
+
+    List<String> requestedIds = byInstance
+      ? instanceIds
+      : ids == null ? Collections.emptyList() : ids;
+
+    String invalidIdsMessage = MultiGet.invalidIdsMessage(requestedIds);
+
+    if (invalidIdsMessage != null) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        badRequest.apply(invalidIdsMessage)));
+
+      return;
+    }
+
+    if (requestedIds.isEmpty()) {
+      Items noItems = new Items();
+      noItems.setItems(Collections.emptyList());
+      noItems.setTotalRecords(0);
+
+      asyncResultHandler.handle(Future.succeededFuture(ok.apply(noItems)));
+
+      return;
+    }
+
+    String whereClause;
+
+    try {
+      whereClause = CqlTranslationCache.whereClause(ITEM_TABLE, query);
+    }
+    catch(Exception e) {
+      asyncResultHandler.handle(Future.succeededFuture(badRequest.apply(
+        "CQL Parsing Error for '" + query + "': " + e.getLocalizedMessage())));
+
+      return;
+    }
+
+    Handler<AsyncResult<List<JsonObject>>> onFetched = reply -> {
+      if(reply.succeeded()) {
+        List<Item> items = reply.result().stream()
+          .map(record -> Json.decodeValue(record.encode(), Item.class))
+          .collect(Collectors.toList());
+
+        Items itemList = new Items();
+        itemList.setItems(items);
+        itemList.setTotalRecords(items.size());
+
+        asyncResultHandler.handle(Future.succeededFuture(ok.apply(itemList)));
+      }
+      else {
+        log.error(reply.cause().getMessage(), reply.cause());
+
+        asyncResultHandler.handle(Future.succeededFuture(
+          serverError.apply(reply.cause().getMessage())));
+      }
+    };
+
+    vertxContext.runOnContext(v -> {
+      if(byInstance) {
+        MultiGet.byReference(vertxContext.owner(), tenantId, ITEM_TABLE,
+          "instanceId", requestedIds, whereClause, onFetched);
+      }
+      else {
+        MultiGet.byIds(vertxContext.owner(), tenantId, ITEM_TABLE,
+          requestedIds, whereClause, onFetched);
+      }
+    });
+  }
+
   @Validate
   @Override
   public void getItemStorageItemsByItemId(
     @PathParam("itemId") @NotNull String itemId,
+    @HeaderParam("If-None-Match") String ifNoneMatch,
     @QueryParam("lang") @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
     java.util.Map<String, String> okapiHeaders,
     io.vertx.core.Handler<io.vertx.core.AsyncResult<Response>> asyncResultHandler,
@@ -303,44 +690,45 @@ public class ItemStorageAPI implements ItemStorageResource {
       return;
     }
 
-    Criteria a = new Criteria();
-
-    a.addField("'id'");
-    a.setOperation("=");
-    a.setValue(itemId);
+    if(!StorageSql.isUUID(itemId)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        ItemStorageResource.GetItemStorageItemsByItemIdResponse.
+          withPlainNotFound("Not Found")));
 
-    Criterion criterion = new Criterion(a);
+      return;
+    }
 
     try {
-      PostgresClient postgresClient = PostgresClient.getInstance(
-        vertxContext.owner(), TenantTool.calculateTenantId(tenantId));
-
       vertxContext.runOnContext(v -> {
         try {
-          postgresClient.get("item", Item.class, criterion, true, false,
+          VersionedRecord.fetch(vertxContext.owner(), tenantId, ITEM_TABLE, itemId,
             reply -> {
               try {
-                if(reply.succeeded()) {
-                  List<Item> itemList = (List<Item>) reply.result()[0];
-                  if (itemList.size() == 1) {
-                    Item item = itemList.get(0);
-
-                    asyncResultHandler.handle(
-                      Future.succeededFuture(
-                        ItemStorageResource.GetItemStorageItemsByItemIdResponse.
-                          withJsonOK(item)));
-                  } else {
-                    asyncResultHandler.handle(
-                      Future.succeededFuture(
-                        ItemStorageResource.GetItemStorageItemsByItemIdResponse.
-                          withPlainNotFound("Not Found")));
-                  }
-                }
-                else {
-                  Future.succeededFuture(
+                if(reply.failed()) {
+                  asyncResultHandler.handle(Future.succeededFuture(
                     ItemStorageResource.GetItemStorageItemsByItemIdResponse
                       .withPlainInternalServerError(
-                        reply.cause().getMessage()));
+                        reply.cause().getMessage())));
+                }
+                else if(reply.result() == null) {
+                  asyncResultHandler.handle(
+                    Future.succeededFuture(
+                      ItemStorageResource.GetItemStorageItemsByItemIdResponse.
+                        withPlainNotFound("Not Found")));
+                }
+                else if(reply.result().isMatchedBy(ifNoneMatch)) {
+                  asyncResultHandler.handle(
+                    Future.succeededFuture(reply.result().withETag(
+                      ItemStorageResource.GetItemStorageItemsByItemIdResponse.
+                        withNotModified())));
+                }
+                else {
+                  Item item = reply.result().getRecord(Item.class);
+
+                  asyncResultHandler.handle(
+                    Future.succeededFuture(reply.result().withETag(
+                      ItemStorageResource.GetItemStorageItemsByItemIdResponse.
+                        withJsonOK(item))));
                 }
               } catch (Exception e) {
                 asyncResultHandler.handle(Future.succeededFuture(
@@ -363,6 +751,7 @@ public class ItemStorageAPI implements ItemStorageResource {
   @Validate
   @Override
   public void deleteItemStorageItems(
+    String query,
     @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
     Map<String, String> okapiHeaders,
     Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext)
@@ -376,6 +765,12 @@ public class ItemStorageAPI implements ItemStorageResource {
       return;
     }
 
+    if (query != null && !query.trim().isEmpty()) {
+      deleteItemsMatching(query, tenantId, asyncResultHandler, vertxContext);
+
+      return;
+    }
+
     try {
       vertxContext.runOnContext(v -> {
         PostgresClient postgresClient = PostgresClient.getInstance(
@@ -385,6 +780,8 @@ public class ItemStorageAPI implements ItemStorageResource {
           tenantId, "inventory_storage"),
           reply -> {
             if (reply.succeeded()) {
+              TotalRecords.invalidate(tenantId, ITEM_TABLE);
+
               asyncResultHandler.handle(Future.succeededFuture(
                 ItemStorageResource.DeleteItemStorageItemsResponse.noContent()
                   .build()));
@@ -403,10 +800,54 @@ public class ItemStorageAPI implements ItemStorageResource {
     }
   }
 
+  private void deleteItemsMatching(
+    String query,
+    String tenantId,
+    Handler<AsyncResult<Response>> asyncResultHandler,
+    Context vertxContext) {
+
+    String whereClause;
+
+    try {
+      whereClause = CqlTranslationCache.whereClause(ITEM_TABLE, query);
+    }
+    catch(Exception e) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        DeleteItemStorageItemsResponse.withPlainBadRequest(
+          "CQL Parsing Error for '" + query + "': " + e.getLocalizedMessage())));
+
+      return;
+    }
+
+    vertxContext.runOnContext(v ->
+      BulkDelete.delete(vertxContext.owner(), tenantId, ITEM_TABLE, whereClause,
+        reply -> {
+          if(reply.succeeded()) {
+            if(reply.result() > 0) {
+              TotalRecords.invalidate(tenantId, ITEM_TABLE);
+            }
+
+            Deleteresult result = new Deleteresult();
+            result.setDeletedRecords(reply.result());
+
+            asyncResultHandler.handle(Future.succeededFuture(
+              DeleteItemStorageItemsResponse.withJsonOK(result)));
+          }
+          else {
+            log.error(reply.cause().getMessage(), reply.cause());
+
+            asyncResultHandler.handle(Future.succeededFuture(
+              DeleteItemStorageItemsResponse
+                .withPlainInternalServerError(reply.cause().getMessage())));
+          }
+        }));
+  }
+
   @Validate
   @Override
   public void putItemStorageItemsByItemId(
     @PathParam("itemId") @NotNull String itemId,
+    @HeaderParam("If-Match") String ifMatch,
     @QueryParam("lang") @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
     Item entity,
     java.util.Map<String, String> okapiHeaders,
@@ -422,131 +863,188 @@ public class ItemStorageAPI implements ItemStorageResource {
       return;
     }
 
-    try {
-      PostgresClient postgresClient =
-        PostgresClient.getInstance(
-          vertxContext.owner(), TenantTool.calculateTenantId(tenantId));
+    if(!StorageSql.isUUID(itemId)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        PutItemStorageItemsByItemIdResponse
+          .withPlainBadRequest("ID must be a UUID")));
 
-      Criteria a = new Criteria();
+      return;
+    }
 
-      a.addField("'id'");
-      a.setOperation("=");
-      a.setValue(itemId);
+    if(ifMatch != null && !VersionedRecord.canMatch(ifMatch)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        PutItemStorageItemsByItemIdResponse
+          .withPlainPreconditionFailed(VERSION_NOT_MATCHED_MESSAGE)));
 
-      Criterion criterion = new Criterion(a);
+      return;
+    }
+
+    String materialTypeId = entity.getMaterialTypeId();
+
+    //material type is checked by the database, an ID which is not a UUID cannot match
+    if(materialTypeId != null && !StorageSql.isUUID(materialTypeId)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        PutItemStorageItemsByItemIdResponse
+          .withPlainBadRequest(materialTypeNotFoundMessage(materialTypeId))));
+
+      return;
+    }
+
+    entity.setId(itemId);
+
+    Handler<AsyncResult<Upsert.Outcome>> onUpsert = reply -> {
+      try {
+        if(reply.failed()) {
+          if(isDuplicateBarcode(reply.cause().getMessage())) {
+            asyncResultHandler.handle(Future.succeededFuture(
+              PutItemStorageItemsByItemIdResponse
+                .withPlainBadRequest(duplicateBarcodeMessage(entity))));
+          }
+          else if(isMaterialTypeNotFound(reply.cause().getMessage())) {
+            String message = materialTypeNotFoundMessage(materialTypeId);
+
+            log.error(message);
+
+            asyncResultHandler.handle(Future.succeededFuture(
+              PutItemStorageItemsByItemIdResponse
+                .withPlainBadRequest(message)));
+          }
+          else {
+            log.error(reply.cause().getMessage(), reply.cause());
+
+            asyncResultHandler.handle(Future.succeededFuture(
+              PutItemStorageItemsByItemIdResponse
+                .withPlainInternalServerError(reply.cause().getMessage())));
+          }
+        }
+        else if(reply.result() == Upsert.Outcome.VERSION_NOT_MATCHED) {
+          asyncResultHandler.handle(Future.succeededFuture(
+            PutItemStorageItemsByItemIdResponse
+              .withPlainPreconditionFailed(VERSION_NOT_MATCHED_MESSAGE)));
+        }
+        else {
+          if(reply.result() == Upsert.Outcome.CREATED) {
+            TotalRecords.invalidate(tenantId, ITEM_TABLE);
+          }
+
+          asyncResultHandler.handle(Future.succeededFuture(
+            PutItemStorageItemsByItemIdResponse.withNoContent()));
+        }
+      } catch (Exception e) {
+        asyncResultHandler.handle(Future.succeededFuture(
+          PutItemStorageItemsByItemIdResponse
+            .withPlainInternalServerError(e.getMessage())));
+      }
+    };
 
+    try {
       vertxContext.runOnContext(v -> {
         try {
-          getMT(vertxContext.owner(), tenantId, entity, replyHandler -> {
-              int res = replyHandler.result();
-              if(res == 0){
-                String message = "Can not add " + entity.getMaterialTypeId() + ". Material type not found";
-                log.error(message);
-                asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(PutItemStorageItemsByItemIdResponse
-                  .withPlainBadRequest(message)));
-              }
-              else if(res == -1){
-                asyncResultHandler.handle(Future.succeededFuture(
-                  ItemStorageResource.PostItemStorageItemsResponse
-                    .withPlainInternalServerError("")));
-              }
-              else{
-                try {
-                  postgresClient.get("item", Item.class, criterion, true, false,
-                    reply -> {
-                      if(reply.succeeded()) {
-                        List<Item> itemList = (List<Item>) reply.result()[0];
-                        if (itemList.size() == 1) {
-                          try {
-                            postgresClient.update("item", entity, criterion, true,
-                              update -> {
-                                try {
-                                  if (update.succeeded()) {
-                                    OutStream stream = new OutStream();
-                                    stream.setData(entity);
-
-                                    asyncResultHandler.handle(
-                                      Future.succeededFuture(
-                                        PutItemStorageItemsByItemIdResponse
-                                          .withNoContent()));
-                                  } else {
-                                    asyncResultHandler.handle(
-                                      Future.succeededFuture(
-                                        PutItemStorageItemsByItemIdResponse
-                                          .withPlainInternalServerError(
-                                            update.cause().getMessage())));
-                                  }
-                                } catch (Exception e) {
-                                  asyncResultHandler.handle(
-                                    Future.succeededFuture(
-                                      PostItemStorageItemsResponse
-                                        .withPlainInternalServerError(e.getMessage())));
-                                }
-                              });
-                          } catch (Exception e) {
-                            asyncResultHandler.handle(Future.succeededFuture(
-                              PutItemStorageItemsByItemIdResponse
-                                .withPlainInternalServerError(e.getMessage())));
-                          }
-                        } else {
-                          try {
-                            postgresClient.save("item", entity.getId(), entity,
-                              save -> {
-                                try {
-                                  if (save.succeeded()) {
-                                    OutStream stream = new OutStream();
-                                    stream.setData(entity);
-
-                                    asyncResultHandler.handle(
-                                      Future.succeededFuture(
-                                        PutItemStorageItemsByItemIdResponse
-                                          .withNoContent()));
-                                  } else {
-                                    asyncResultHandler.handle(
-                                      Future.succeededFuture(
-                                        PutItemStorageItemsByItemIdResponse
-                                          .withPlainInternalServerError(
-                                            save.cause().getMessage())));
-                                  }
-
-                                } catch (Exception e) {
-                                  asyncResultHandler.handle(
-                                    Future.succeededFuture(
-                                      PostItemStorageItemsResponse
-                                        .withPlainInternalServerError(e.getMessage())));
-                                }
-                              });
-                          } catch (Exception e) {
-                            asyncResultHandler.handle(Future.succeededFuture(
-                              PutItemStorageItemsByItemIdResponse
-                                .withPlainInternalServerError(e.getMessage())));
-                          }
-                        }
-                      } else {
-                        asyncResultHandler.handle(Future.succeededFuture(
-                          PutItemStorageItemsByItemIdResponse
-                            .withPlainInternalServerError(reply.cause().getMessage())));
-                      }
-                    });
-                } catch (Exception e) {
-                  asyncResultHandler.handle(Future.succeededFuture(
-                    ItemStorageResource.PostItemStorageItemsResponse
-                      .withPlainInternalServerError(e.getMessage())));
-                }
-              }
-          });
+          if(ifMatch == null) {
+            Upsert.upsert(vertxContext.owner(), tenantId, ITEM_TABLE, itemId,
+              entity, onUpsert);
+          }
+          else {
+            Upsert.replace(vertxContext.owner(), tenantId, ITEM_TABLE, itemId,
+              entity, VersionedRecord.versionsFrom(ifMatch), onUpsert);
+          }
         } catch (Exception e) {
           asyncResultHandler.handle(Future.succeededFuture(
-            ItemStorageResource.PostItemStorageItemsResponse
+            PutItemStorageItemsByItemIdResponse
               .withPlainInternalServerError(e.getMessage())));
         }
       });
     } catch (Exception e) {
       asyncResultHandler.handle(Future.succeededFuture(
-        ItemStorageResource.PostItemStorageItemsResponse
+        PutItemStorageItemsByItemIdResponse
+          .withPlainInternalServerError(e.getMessage())));
+    }
+  }
+
+  @Validate
+  @Override
+  public void patchItemStorageItemsByItemId(
+    @PathParam("itemId") @NotNull String itemId,
+    @QueryParam("lang") @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
+    Itempatch entity,
+    java.util.Map<String, String> okapiHeaders,
+    io.vertx.core.Handler<io.vertx.core.AsyncResult<Response>> asyncResultHandler,
+    Context vertxContext)
+    throws Exception {
+
+    String tenantId = okapiHeaders.get(TENANT_HEADER);
+
+    if (blankTenantId(tenantId)) {
+      badRequestResult(asyncResultHandler, BLANK_TENANT_MESSAGE);
+
+      return;
+    }
+
+    if(!StorageSql.isUUID(itemId)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        PatchItemStorageItemsByItemIdResponse.withPlainNotFound("Not Found")));
+
+      return;
+    }
+
+    //the patch is kept as provided, so that properties set to null remain in it
+    JsonObject patch = new JsonObject(entity.getAdditionalProperties());
+
+    String invalidPatchMessage = invalidPatchMessage(itemId, patch);
+
+    if(invalidPatchMessage != null) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        PatchItemStorageItemsByItemIdResponse
+          .withPlainBadRequest(invalidPatchMessage)));
+
+      return;
+    }
+
+    try {
+      vertxContext.runOnContext(v ->
+        MergePatch.apply(vertxContext.owner(), tenantId, ITEM_TABLE,
+          itemId, patch, this::invalidItemMessage, reply -> {
+            if(reply.failed()) {
+              if(reply.cause() instanceof MergePatch.InvalidRecordException) {
+                asyncResultHandler.handle(Future.succeededFuture(
+                  PatchItemStorageItemsByItemIdResponse.withPlainBadRequest(
+                    reply.cause().getMessage())));
+              }
+              else if(isDuplicateBarcode(reply.cause().getMessage())) {
+                asyncResultHandler.handle(Future.succeededFuture(
+                  PatchItemStorageItemsByItemIdResponse.withPlainBadRequest(
+                    duplicateBarcodeMessage(patch.getString("barcode")))));
+              }
+              else if(isMaterialTypeNotFound(reply.cause().getMessage())) {
+                asyncResultHandler.handle(Future.succeededFuture(
+                  PatchItemStorageItemsByItemIdResponse.withPlainBadRequest(
+                    materialTypeNotFoundMessage(patch.getString("materialTypeId")))));
+              }
+              else {
+                log.error(reply.cause().getMessage(), reply.cause());
+
+                asyncResultHandler.handle(Future.succeededFuture(
+                  PatchItemStorageItemsByItemIdResponse
+                    .withPlainInternalServerError(reply.cause().getMessage())));
+              }
+            }
+            else if(reply.result()) {
+              asyncResultHandler.handle(Future.succeededFuture(
+                PatchItemStorageItemsByItemIdResponse.withNoContent()));
+            }
+            else {
+              asyncResultHandler.handle(Future.succeededFuture(
+                PatchItemStorageItemsByItemIdResponse
+                  .withPlainNotFound("Not Found")));
+            }
+          }));
+    } catch (Exception e) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        PatchItemStorageItemsByItemIdResponse
           .withPlainInternalServerError(e.getMessage())));
     }
   }
+
   @Validate
   @Override
   public void deleteItemStorageItemsByItemId(
@@ -583,6 +1081,8 @@ public class ItemStorageAPI implements ItemStorageResource {
           postgresClient.delete("item", criterion,
             reply -> {
               if(reply.succeeded()) {
+                TotalRecords.invalidate(tenantId, ITEM_TABLE);
+
                 asyncResultHandler.handle(
                   Future.succeededFuture(
                     DeleteItemStorageItemsByItemIdResponse
@@ -607,12 +1107,216 @@ public class ItemStorageAPI implements ItemStorageResource {
     }
   }
 
+  @Validate
+  @Override
+  public void getItemStorageChanges(
+    @QueryParam("since") String since,
+    @QueryParam("limit") @DefaultValue("100") @Min(1L) @Max(1000L) int limit,
+    @QueryParam("lang") @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> asyncResultHandler,
+    Context vertxContext)
+    throws Exception {
+
+    String tenantId = okapiHeaders.get(TENANT_HEADER);
+
+    if (blankTenantId(tenantId)) {
+      badRequestResult(asyncResultHandler, BLANK_TENANT_MESSAGE);
+
+      return;
+    }
+
+    if (!ChangeFeed.isValidResumeToken(since)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        GetItemStorageChangesResponse.withPlainBadRequest(
+          "Invalid resume token: " + since)));
+
+      return;
+    }
+
+    vertxContext.runOnContext(v ->
+      ChangeFeed.fetch(vertxContext.owner(), tenantId, ITEM_TABLE, since, limit,
+        reply -> {
+          if(reply.succeeded()) {
+            Changes changes = new Changes();
+            changes.setChanges(reply.result().getChanges(Change.class));
+            changes.setResumeToken(reply.result().getResumeToken());
+
+            asyncResultHandler.handle(Future.succeededFuture(
+              GetItemStorageChangesResponse.withJsonOK(changes)));
+          }
+          else {
+            log.error(reply.cause().getMessage(), reply.cause());
+
+            asyncResultHandler.handle(Future.succeededFuture(
+              GetItemStorageChangesResponse.withPlainInternalServerError(
+                reply.cause().getMessage())));
+          }
+        }));
+  }
+
+  @Validate
+  @Override
+  public void getItemStorageFacets(
+    @QueryParam("query") String query,
+    @QueryParam("facets") @NotNull String facets,
+    @QueryParam("limit") @DefaultValue("100") @Min(1L) @Max(1000L) int limit,
+    @QueryParam("lang") @DefaultValue("en") @Pattern(regexp = "[a-zA-Z]{2}") String lang,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> asyncResultHandler,
+    Context vertxContext)
+    throws Exception {
+
+    String tenantId = okapiHeaders.get(TENANT_HEADER);
+
+    if (blankTenantId(tenantId)) {
+      badRequestResult(asyncResultHandler, BLANK_TENANT_MESSAGE);
+
+      return;
+    }
+
+    List<String> fields = MultiGet.parse(facets);
+
+    String invalidFieldsMessage = FacetCounts.invalidFieldsMessage(fields);
+
+    if(invalidFieldsMessage != null) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        GetItemStorageFacetsResponse.withPlainBadRequest(invalidFieldsMessage)));
+
+      return;
+    }
+
+    String whereClause;
+
+    try {
+      whereClause = CqlTranslationCache.whereClause(ITEM_TABLE, query);
+    }
+    catch(Exception e) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        GetItemStorageFacetsResponse.withPlainBadRequest(
+          "CQL Parsing Error for '" + query + "': " + e.getLocalizedMessage())));
+
+      return;
+    }
+
+    vertxContext.runOnContext(v ->
+      FacetCounts.count(vertxContext.owner(), tenantId, ITEM_TABLE, whereClause,
+        fields, limit, reply -> {
+          if(reply.succeeded()) {
+            Facets result = new Facets();
+            result.setFields(fields);
+
+            for(FacetCounts counts : reply.result()) {
+              Facetgroup group = new Facetgroup();
+              group.setValues(counts.getValues());
+              group.setCount(counts.getCount());
+
+              result.getGroups().add(group);
+            }
+
+            asyncResultHandler.handle(Future.succeededFuture(
+              GetItemStorageFacetsResponse.withJsonOK(result)));
+          }
+          else {
+            log.error(reply.cause().getMessage(), reply.cause());
+
+            asyncResultHandler.handle(Future.succeededFuture(
+              GetItemStorageFacetsResponse.withPlainInternalServerError(
+                reply.cause().getMessage())));
+          }
+        }));
+  }
+
   private void badRequestResult(
     Handler<AsyncResult<Response>> asyncResultHandler, String message) {
     asyncResultHandler.handle(Future.succeededFuture(
       GetItemStorageItemsResponse.withPlainBadRequest(message)));
   }
 
+  private boolean isDuplicateBarcode(String errorMessage) {
+    return errorMessage != null
+      && errorMessage.contains("duplicate key value violates unique constraint")
+      && errorMessage.contains(BARCODE_UNIQUE_INDEX);
+  }
+
+  private String duplicateBarcodeMessage(Item item) {
+    return duplicateBarcodeMessage(item.getBarcode());
+  }
+
+  private String duplicateBarcodeMessage(String barcode) {
+    return String.format(
+      "Barcodes must be unique, %s is already assigned to another item",
+      barcode);
+  }
+
+  /**
+   * Checks a patch could not produce an invalid item
+   *
+   * @param itemId
+   * @param patch
+   * @return why the patch is invalid, null when it is valid
+   */
+  private String invalidPatchMessage(String itemId, JsonObject patch) {
+    if(patch.containsKey("id") && !itemId.equals(patch.getValue("id"))) {
+      return "id cannot be changed";
+    }
+
+    for(String property : REQUIRED_PROPERTIES) {
+      if(patch.containsKey(property) && patch.getValue(property) == null) {
+        return property + " is required and cannot be removed";
+      }
+    }
+
+    for(String property : STRING_PROPERTIES) {
+      Object value = patch.getValue(property);
+
+      if(value != null && !(value instanceof String)) {
+        return property + " must be a string";
+      }
+    }
+
+    String materialTypeId = patch.getString("materialTypeId");
+
+    if(materialTypeId != null && !StorageSql.isUUID(materialTypeId)) {
+      return materialTypeNotFoundMessage(materialTypeId);
+    }
+
+    return null;
+  }
+
+  /**
+   * Checks an item (e.g. once patched) against the item schema
+   *
+   * @param record item in the form it is stored
+   * @return why the item is invalid, null when it is valid
+   */
+  private String invalidItemMessage(JsonObject record) {
+    Item item;
+
+    try {
+      item = Json.decodeValue(record.encode(), Item.class);
+    }
+    catch(DecodeException e) {
+      return "Patched item is not valid: " + e.getMessage();
+    }
+
+    return validator.validate(item).stream()
+      .map(violation -> String.format("Patched item is not valid: %s %s",
+        violation.getPropertyPath(), violation.getMessage()))
+      .findFirst()
+      .orElse(null);
+  }
+
+  private boolean isMaterialTypeNotFound(String message) {
+    return message != null
+      && message.contains("violates foreign key constraint")
+      && message.contains(MATERIAL_TYPE_FOREIGN_KEY);
+  }
+
+  private String materialTypeNotFoundMessage(String materialTypeId) {
+    return "Can not add " + materialTypeId + ". Material type not found";
+  }
+
   private boolean blankTenantId(String tenantId) {
     return tenantId == null || tenantId == "" || tenantId == "folio_shared";
   }
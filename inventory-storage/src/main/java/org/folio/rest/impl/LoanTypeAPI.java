@@ -14,15 +14,13 @@ import org.folio.rest.jaxrs.resource.LoanTypesResource;
 import org.folio.rest.persist.PostgresClient;
 import org.folio.rest.persist.Criteria.Criteria;
 import org.folio.rest.persist.Criteria.Criterion;
-import org.folio.rest.persist.Criteria.Limit;
-import org.folio.rest.persist.Criteria.Offset;
-import org.folio.rest.persist.cql.CQLWrapper;
+import org.folio.rest.support.CqlTranslationCache;
+import org.folio.rest.support.OffsetPage;
+import org.folio.rest.support.TotalRecords;
 import org.folio.rest.tools.messages.MessageConsts;
 import org.folio.rest.tools.messages.Messages;
 import org.folio.rest.tools.utils.OutStream;
 import org.folio.rest.tools.utils.TenantTool;
-import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
-import org.z3950.zing.cql.cql2pgjson.FieldException;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
@@ -48,35 +46,38 @@ public class LoanTypeAPI implements LoanTypesResource {
     PostgresClient.getInstance(vertx, tenantId).setIdField(idFieldName);
   }
 
-  private CQLWrapper getCQL(String query, int limit, int offset) throws FieldException {
-    CQL2PgJSON cql2pgJson = new CQL2PgJSON(LOAN_TYPE_TABLE+".jsonb");
-    return new CQLWrapper(cql2pgJson, query).setLimit(new Limit(limit)).setOffset(new Offset(offset));
-  }
-
   @Validate
   @Override
-  public void getLoanTypes(String query, int offset, int limit, String lang,
+  public void getLoanTypes(String query, int offset, int limit, String totalRecords, String lang,
       Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler,
       Context vertxContext) throws Exception {
     /**
      * http://host:port/loan-types
      */
+    if (!TotalRecords.isValidMode(totalRecords)) {
+      asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(GetLoanTypesResponse
+          .withPlainBadRequest("totalRecords must be one of none, estimate or exact")));
+      return;
+    }
     vertxContext.runOnContext(v -> {
       try {
         String tenantId = TenantTool.tenantId(okapiHeaders);
-        CQLWrapper cql = getCQL(query, limit, offset);
-        PostgresClient.getInstance(vertxContext.owner(), tenantId).get(LOAN_TYPE_TABLE, Loantype.class,
-            new String[]{"*"}, cql, true, true,
+        String whereClause = CqlTranslationCache.whereClause(LOAN_TYPE_TABLE, query);
+        TotalRecords totals = new TotalRecords(vertxContext.owner(), tenantId, LOAN_TYPE_TABLE, query, totalRecords);
+        boolean count = totals.needsCount();
+        OffsetPage.fetch(vertxContext.owner(), tenantId, LOAN_TYPE_TABLE,
+            whereClause, offset, limit, count,
             reply -> {
               try {
                 if (reply.succeeded()) {
-                  Loantypes loantypes = new Loantypes();
-                  @SuppressWarnings("unchecked")
-                  List<Loantype> loantype = (List<Loantype>) reply.result()[0];
-                  loantypes.setLoantypes(loantype);
-                  loantypes.setTotalRecords((Integer)reply.result()[1]);
-                  asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(GetLoanTypesResponse.withJsonOK(
-                      loantypes)));
+                  List<Loantype> loantype = reply.result().getRecords(Loantype.class);
+                  totals.resolve(reply.result().getTotalRecords(), total -> {
+                    Loantypes loantypes = new Loantypes();
+                    loantypes.setLoantypes(loantype);
+                    loantypes.setTotalRecords(total.result());
+                    asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(GetLoanTypesResponse.withJsonOK(
+                        loantypes)));
+                  });
                 }
                 else{
                   log.error(reply.cause().getMessage(), reply.cause());
@@ -123,6 +124,7 @@ public class LoanTypeAPI implements LoanTypesResource {
             reply -> {
               try {
                 if (reply.succeeded()) {
+                  TotalRecords.invalidate(tenantId, LOAN_TYPE_TABLE);
                   Object ret = reply.result();
                   entity.setId((String) ret);
                   OutStream stream = new OutStream();
@@ -252,6 +254,7 @@ public class LoanTypeAPI implements LoanTypesResource {
                           try {
                             if (reply.succeeded()) {
                               if (reply.result().getUpdated() == 1) {
+                                TotalRecords.invalidate(tenantId, LOAN_TYPE_TABLE);
                                 asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(DeleteLoanTypesByLoantypeIdResponse
                                     .withNoContent()));
                               }
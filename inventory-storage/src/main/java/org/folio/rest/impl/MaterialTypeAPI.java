@@ -15,15 +15,14 @@ import org.folio.rest.jaxrs.resource.MaterialTypesResource;
 import org.folio.rest.persist.PostgresClient;
 import org.folio.rest.persist.Criteria.Criteria;
 import org.folio.rest.persist.Criteria.Criterion;
-import org.folio.rest.persist.Criteria.Limit;
-import org.folio.rest.persist.Criteria.Offset;
-import org.folio.rest.persist.cql.CQLWrapper;
+import org.folio.rest.support.CqlTranslationCache;
+import org.folio.rest.support.MaterialTypeCache;
+import org.folio.rest.support.OffsetPage;
+import org.folio.rest.support.TotalRecords;
 import org.folio.rest.tools.messages.MessageConsts;
 import org.folio.rest.tools.messages.Messages;
 import org.folio.rest.tools.utils.OutStream;
 import org.folio.rest.tools.utils.TenantTool;
-import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
-import org.z3950.zing.cql.cql2pgjson.FieldException;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
@@ -50,35 +49,38 @@ public class MaterialTypeAPI implements MaterialTypesResource {
     PostgresClient.getInstance(vertx, tenantId).setIdField(idFieldName);
   }
 
-  private CQLWrapper getCQL(String query, int limit, int offset) throws FieldException {
-    CQL2PgJSON cql2pgJson = new CQL2PgJSON(MATERIAL_TYPE_TABLE+".jsonb");
-    return new CQLWrapper(cql2pgJson, query).setLimit(new Limit(limit)).setOffset(new Offset(offset));
-  }
-
   @Validate
   @Override
-  public void getMaterialTypes(String query, int offset, int limit, String lang,
+  public void getMaterialTypes(String query, int offset, int limit, String totalRecords, String lang,
       Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler,
       Context vertxContext) throws Exception {
     /**
     * http://host:port/material-types
     */
+    if(!TotalRecords.isValidMode(totalRecords)){
+      asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(GetMaterialTypesResponse
+        .withPlainBadRequest("totalRecords must be one of none, estimate or exact")));
+      return;
+    }
     vertxContext.runOnContext(v -> {
       try {
         String tenantId = TenantTool.calculateTenantId( okapiHeaders.get(RestVerticle.OKAPI_HEADER_TENANT) );
-        CQLWrapper cql = getCQL(query, limit, offset);
-        PostgresClient.getInstance(vertxContext.owner(), tenantId).get(MATERIAL_TYPE_TABLE, Mtype.class,
-          new String[]{"*"}, cql, true, true,
+        String whereClause = CqlTranslationCache.whereClause(MATERIAL_TYPE_TABLE, query);
+        TotalRecords totals = new TotalRecords(vertxContext.owner(), tenantId, MATERIAL_TYPE_TABLE, query, totalRecords);
+        boolean count = totals.needsCount();
+        OffsetPage.fetch(vertxContext.owner(), tenantId, MATERIAL_TYPE_TABLE,
+          whereClause, offset, limit, count,
             reply -> {
               try {
                 if(reply.succeeded()){
-                  Mtypes mtypes = new Mtypes();
-                  @SuppressWarnings("unchecked")
-                  List<Mtype> mtype = (List<Mtype>) reply.result()[0];
-                  mtypes.setMtypes(mtype);
-                  mtypes.setTotalRecords((Integer)reply.result()[1]);
-                  asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(GetMaterialTypesResponse.withJsonOK(
-                    mtypes)));
+                  List<Mtype> mtype = reply.result().getRecords(Mtype.class);
+                  totals.resolve(reply.result().getTotalRecords(), total -> {
+                    Mtypes mtypes = new Mtypes();
+                    mtypes.setMtypes(mtype);
+                    mtypes.setTotalRecords(total.result());
+                    asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(GetMaterialTypesResponse.withJsonOK(
+                      mtypes)));
+                  });
                 }
                 else{
                   log.error(reply.cause().getMessage(), reply.cause());
@@ -125,6 +127,8 @@ public class MaterialTypeAPI implements MaterialTypesResource {
           reply -> {
             try {
               if(reply.succeeded()){
+                MaterialTypeCache.invalidate(tenantId);
+                TotalRecords.invalidate(tenantId, MATERIAL_TYPE_TABLE);
                 Object ret = reply.result();
                 entity.setId((String) ret);
                 OutStream stream = new OutStream();
@@ -245,6 +249,8 @@ public class MaterialTypeAPI implements MaterialTypesResource {
                   reply -> {
                     try {
                       if(reply.succeeded()){
+                        MaterialTypeCache.invalidate(tenantId);
+                        TotalRecords.invalidate(tenantId, MATERIAL_TYPE_TABLE);
                         if(reply.result().getUpdated() == 1){
                           asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(DeleteMaterialTypesByMaterialtypeIdResponse
                             .withNoContent()));
@@ -255,6 +261,14 @@ public class MaterialTypeAPI implements MaterialTypesResource {
                             .withPlainNotFound(messages.getMessage(lang, MessageConsts.DeletedCountError,1 , reply.result().getUpdated()))));
                         }
                       }
+                      else if(isInUse(reply.cause().getMessage())){
+                        //an item was associated with it since the check above
+                        String message = "Can not delete material type, "+ materialtypeId + ". " +
+                            "Items are associated with it";
+                        log.error(message);
+                        asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(DeleteMaterialTypesByMaterialtypeIdResponse
+                          .withPlainBadRequest(message)));
+                      }
                       else{
                         log.error(reply.cause().getMessage(), reply.cause());
                         asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(DeleteMaterialTypesByMaterialtypeIdResponse
@@ -308,6 +322,7 @@ public class MaterialTypeAPI implements MaterialTypesResource {
           reply -> {
             try {
               if(reply.succeeded()){
+                MaterialTypeCache.invalidate(tenantId);
                 if(reply.result().getUpdated() == 0){
                   asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(PutMaterialTypesByMaterialtypeIdResponse
                     .withPlainNotFound(messages.getMessage(lang, MessageConsts.NoRecordsUpdated))));
@@ -336,11 +351,6 @@ public class MaterialTypeAPI implements MaterialTypesResource {
     });
   }
 
-  private CQLWrapper getCQL(String table, String query, int limit, int offset) throws FieldException {
-    CQL2PgJSON cql2pgJson = new CQL2PgJSON(table+".jsonb");
-    return new CQLWrapper(cql2pgJson, query).setLimit(new Limit(limit)).setOffset(new Offset(offset));
-  }
-
   private boolean isDuplicate(String errorMessage){
     if(errorMessage != null && errorMessage.contains("duplicate key value violates unique constraint")){
       return true;
@@ -357,4 +367,11 @@ public class MaterialTypeAPI implements MaterialTypesResource {
     }
   }
 
+  private boolean isInUse(String errorMessage){
+    if(errorMessage != null && errorMessage.contains("violates foreign key constraint")){
+      return true;
+    }
+    return false;
+  }
+
 }
@@ -0,0 +1,266 @@
+package org.folio.rest.support;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.folio.rest.jaxrs.model.Batchrecordresult;
+import org.folio.rest.jaxrs.model.Batchresult;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Creates many records with a single multi-row INSERT statement
+ * (and hence a single transaction), whilst reporting the outcome
+ * for each record individually.
+ *
+ * Records can be rejected before the insert (e.g. following validation),
+ * the remainder are inserted together. Records which conflict with
+ * an existing row (or an earlier record in the same batch) are not
+ * inserted and are reported as failed.
+ *
+ * Some unique values are not kept unique by an index on the table itself
+ * (e.g. item barcodes when the item table is partitioned, see
+ * template_create_tenant.sql), so a conflict fails the whole statement
+ * rather than skipping the record. When that happens, each record is
+ * instead inserted on its own (in order), so that only the conflicting
+ * records are reported as failed.
+ *
+ * The same happens when a record refers to a record which no longer exists
+ * (e.g. a material type deleted since it was last checked), these records
+ * are reported using the message given for the reference (see references).
+ */
+public class BatchInsert<T> {
+
+  private static final String CONFLICT_MESSAGE =
+    "Record with this ID (or another unique value) already exists";
+
+  private final List<T> records;
+  private final Function<T, String> idGetter;
+  private final Map<Integer, String> rejections = new LinkedHashMap<>();
+  private final Map<String, Function<T, String>> notFoundMessages =
+    new LinkedHashMap<>();
+
+  public BatchInsert(
+    List<T> records,
+    Function<T, String> idGetter,
+    BiConsumer<T, String> idSetter) {
+
+    this.records = records;
+    this.idGetter = idGetter;
+
+    Set<String> seenIds = new HashSet<>();
+
+    for (int index = 0; index < records.size(); index++) {
+      T record = records.get(index);
+
+      if(idGetter.apply(record) == null) {
+        idSetter.accept(record, UUID.randomUUID().toString());
+      }
+
+      String id = idGetter.apply(record);
+
+      if(!StorageSql.isUUID(id)) {
+        reject(index, "ID must be a UUID");
+      }
+      else if(!seenIds.add(id)) {
+        reject(index, "ID is duplicated within the batch");
+      }
+    }
+  }
+
+  public List<T> getRecords() {
+    return records;
+  }
+
+  public boolean isRejected(int index) {
+    return rejections.containsKey(index);
+  }
+
+  public void reject(int index, String message) {
+    rejections.putIfAbsent(index, message);
+  }
+
+  /**
+   * @param foreignKey name of the constraint which checks the reference
+   * @param referenceGetter gets the ID of the referenced record
+   * @param notFoundMessage describes a reference to a record which does not exist
+   */
+  public BatchInsert<T> references(
+    String foreignKey,
+    Function<T, String> referenceGetter,
+    Function<String, String> notFoundMessage) {
+
+    notFoundMessages.put(foreignKey,
+      record -> notFoundMessage.apply(referenceGetter.apply(record)));
+    return this;
+  }
+
+  public void insert(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    Handler<AsyncResult<Batchresult>> resultHandler) {
+
+    List<Integer> toInsert = new ArrayList<>();
+    JsonArray parameters = new JsonArray();
+
+    for (int index = 0; index < records.size(); index++) {
+      if(!isRejected(index)) {
+        T record = records.get(index);
+
+        toInsert.add(index);
+        parameters.add(idGetter.apply(record));
+        parameters.add(Json.encode(record));
+      }
+    }
+
+    if(toInsert.isEmpty()) {
+      resultHandler.handle(Future.succeededFuture(toResult(new HashSet<>())));
+      return;
+    }
+
+    List<String> rows = new ArrayList<>();
+
+    for (int count = 0; count < toInsert.size(); count++) {
+      rows.add("(?::uuid, ?::jsonb)");
+    }
+
+    String sql = String.format(
+      "INSERT INTO %s (_id, jsonb) VALUES %s ON CONFLICT DO NOTHING RETURNING jsonb->>'id' AS id",
+      StorageSql.tableName(tenantId, table), String.join(", ", rows));
+
+    StorageSql.query(vertx, tenantId, sql, parameters, reply -> {
+      if(reply.succeeded()) {
+        Set<String> insertedIds = new HashSet<>();
+
+        for (JsonObject row : reply.result().getRows()) {
+          insertedIds.add(row.getString("id"));
+        }
+
+        resultHandler.handle(Future.succeededFuture(toResult(insertedIds)));
+      }
+      else if(isConflict(reply.cause()) || isReferenceNotFound(reply.cause())) {
+        insertEach(vertx, tenantId, table, toInsert, 0, new HashSet<>(),
+          resultHandler);
+      }
+      else {
+        resultHandler.handle(Future.failedFuture(reply.cause()));
+      }
+    });
+  }
+
+  private void insertEach(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    List<Integer> toInsert,
+    int position,
+    Set<String> insertedIds,
+    Handler<AsyncResult<Batchresult>> resultHandler) {
+
+    if(position >= toInsert.size()) {
+      resultHandler.handle(Future.succeededFuture(toResult(insertedIds)));
+      return;
+    }
+
+    int index = toInsert.get(position);
+    T record = records.get(index);
+
+    String sql = String.format(
+      "INSERT INTO %s (_id, jsonb) VALUES (?::uuid, ?::jsonb) ON CONFLICT DO NOTHING",
+      StorageSql.tableName(tenantId, table));
+
+    JsonArray parameters = new JsonArray()
+      .add(idGetter.apply(record))
+      .add(Json.encode(record));
+
+    StorageSql.update(vertx, tenantId, sql, parameters, reply -> {
+      if(reply.succeeded()) {
+        if(reply.result().getUpdated() > 0) {
+          insertedIds.add(idGetter.apply(record));
+        }
+      }
+      else if(notFoundMessageFor(reply.cause()) != null) {
+        reject(index, notFoundMessageFor(reply.cause()).apply(record));
+      }
+      else if(!isConflict(reply.cause())) {
+        resultHandler.handle(Future.failedFuture(reply.cause()));
+        return;
+      }
+
+      insertEach(vertx, tenantId, table, toInsert, position + 1, insertedIds,
+        resultHandler);
+    });
+  }
+
+  private static boolean isConflict(Throwable cause) {
+    return cause.getMessage() != null && cause.getMessage()
+      .contains("duplicate key value violates unique constraint");
+  }
+
+  private static boolean isReferenceNotFound(Throwable cause) {
+    return cause.getMessage() != null && cause.getMessage()
+      .contains("violates foreign key constraint");
+  }
+
+  private Function<T, String> notFoundMessageFor(Throwable cause) {
+    if(!isReferenceNotFound(cause)) {
+      return null;
+    }
+
+    return notFoundMessages.entrySet().stream()
+      .filter(entry -> cause.getMessage().contains(entry.getKey()))
+      .map(Map.Entry::getValue)
+      .findFirst()
+      .orElse(null);
+  }
+
+  private Batchresult toResult(Set<String> insertedIds) {
+    List<Batchrecordresult> results = new ArrayList<>();
+
+    int created = 0;
+
+    for (int index = 0; index < records.size(); index++) {
+      String id = idGetter.apply(records.get(index));
+
+      Batchrecordresult result = new Batchrecordresult();
+      result.setId(id);
+
+      if(isRejected(index)) {
+        result.setCreated(false);
+        result.setMessage(rejections.get(index));
+      }
+      else if(insertedIds.contains(id)) {
+        result.setCreated(true);
+        created++;
+      }
+      else {
+        result.setCreated(false);
+        result.setMessage(CONFLICT_MESSAGE);
+      }
+
+      results.add(result);
+    }
+
+    Batchresult batchResult = new Batchresult();
+
+    batchResult.setResults(results);
+    batchResult.setCreatedRecords(created);
+    batchResult.setFailedRecords(records.size() - created);
+
+    return batchResult;
+  }
+}
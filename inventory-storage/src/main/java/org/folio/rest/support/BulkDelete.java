@@ -0,0 +1,83 @@
+package org.folio.rest.support;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+/**
+ * Deletes every record which matches some criteria
+ *
+ * Records are deleted a batch at a time, each batch in its own statement,
+ * so that locks are only held for the duration of a batch rather than until
+ * every matching record has been deleted
+ */
+public class BulkDelete {
+
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+
+  private BulkDelete() { }
+
+  /**
+   * @param vertx
+   * @param tenantId
+   * @param table
+   * @param whereClause criteria for records to delete, e.g. generated from CQL
+   * @param handler receives the number of records deleted
+   */
+  public static void delete(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String whereClause,
+    Handler<AsyncResult<Integer>> handler) {
+
+    delete(vertx, tenantId, table, whereClause, DEFAULT_BATCH_SIZE, handler);
+  }
+
+  public static void delete(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String whereClause,
+    int batchSize,
+    Handler<AsyncResult<Integer>> handler) {
+
+    String tableName = StorageSql.tableName(tenantId, table);
+
+    //run as a one-off statement, as the criteria have their values inline
+    String sql = String.format(
+      "DELETE FROM %s WHERE _id IN (SELECT _id FROM %s WHERE %s LIMIT %s)",
+      tableName, tableName, whereClause, batchSize);
+
+    deleteBatch(vertx, tenantId, sql, batchSize, 0, handler);
+  }
+
+  private static void deleteBatch(
+    Vertx vertx,
+    String tenantId,
+    String sql,
+    int batchSize,
+    int deletedSoFar,
+    Handler<AsyncResult<Integer>> handler) {
+
+    StorageSql.update(vertx, tenantId, sql,
+      reply -> {
+        if(reply.failed()) {
+          handler.handle(Future.failedFuture(reply.cause()));
+          return;
+        }
+
+        int deleted = reply.result().getUpdated();
+        int total = deletedSoFar + deleted;
+
+        //a partial batch means there were no more matching records
+        if(deleted < batchSize) {
+          handler.handle(Future.succeededFuture(total));
+        }
+        else {
+          deleteBatch(vertx, tenantId, sql, batchSize, total, handler);
+        }
+      });
+  }
+}
@@ -0,0 +1,228 @@
+package org.folio.rest.support;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.folio.rest.jaxrs.model.Loadproblem;
+import org.folio.rest.jaxrs.model.Loadresult;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Loads many records, provided as newline delimited JSON, with a single
+ * statement (and hence a single transaction)
+ *
+ * The whole of the input is sent as one parameter, and is split into lines,
+ * parsed, checked and inserted by the database, so that no work is done
+ * per record in the module. Every record is checked before any are inserted
+ * (references to other records are checked with a single join), either
+ * every record is loaded or none are and the problems found are reported.
+ *
+ * Records without an ID are given one. Input which is not JSON, or records
+ * which conflict with an existing row, fail the whole statement.
+ */
+public class BulkLoad {
+
+  public static final int MAXIMUM_PROBLEMS = 100;
+
+  private static final String UUID_PATTERN =
+    "^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$";
+
+  private final String table;
+  private final List<String> requiredProperties = new ArrayList<>();
+  private final List<String> stringProperties = new ArrayList<>();
+  private final Map<String, String> referencedTables = new LinkedHashMap<>();
+  private final Map<String, Function<String, String>> notFoundMessages =
+    new LinkedHashMap<>();
+
+  public BulkLoad(String table) {
+    this.table = table;
+  }
+
+  public BulkLoad require(List<String> properties) {
+    requiredProperties.addAll(properties);
+    return this;
+  }
+
+  public BulkLoad strings(List<String> properties) {
+    stringProperties.addAll(properties);
+    return this;
+  }
+
+  /**
+   * @param property holds the ID of a record in another table
+   * @param referencedTable
+   * @param notFoundMessage describes a reference to a record which does not exist
+   */
+  public BulkLoad references(
+    String property,
+    String referencedTable,
+    Function<String, String> notFoundMessage) {
+
+    referencedTables.put(property, referencedTable);
+    notFoundMessages.put(property, notFoundMessage);
+    return this;
+  }
+
+  /**
+   * @param input newline delimited JSON, encoded as UTF-8
+   * @return the input as text
+   * @throws IOException
+   */
+  public static String text(InputStream input) throws IOException {
+    try(BufferedReader reader = new BufferedReader(
+      new InputStreamReader(input, StandardCharsets.UTF_8))) {
+
+      return reader.lines().collect(Collectors.joining("\n"));
+    }
+  }
+
+  /**
+   * @param message of a failed load
+   * @return whether the load failed because of the input (e.g. a line
+   * which is not JSON or a conflict with an existing record), rather than
+   * a problem with the module or database
+   */
+  public static boolean isInvalidInput(String message) {
+    return message != null && (
+      message.contains("invalid input syntax for type json")
+        || message.contains("duplicate key value violates unique constraint")
+        || message.contains("violates foreign key constraint"));
+  }
+
+  /**
+   * @param vertx
+   * @param tenantId
+   * @param ndjson one JSON object per line, blank lines are ignored
+   * @param handler receives the number of records loaded, or the problems
+   * which prevented them from being loaded
+   */
+  public void load(
+    Vertx vertx,
+    String tenantId,
+    String ndjson,
+    Handler<AsyncResult<Loadresult>> handler) {
+
+    StorageSql.query(vertx, tenantId, sql(tenantId),
+      new JsonArray().add(ndjson), reply -> {
+
+      if(reply.failed()) {
+        handler.handle(Future.failedFuture(reply.cause()));
+        return;
+      }
+
+      Loadresult result = new Loadresult();
+
+      for(JsonObject row : reply.result().getRows()) {
+        if(row.getLong("line") == null) {
+          result.setLoadedRecords(row.getLong("loaded").intValue());
+        }
+        else {
+          Loadproblem problem = new Loadproblem();
+
+          problem.setLine(row.getLong("line").intValue());
+          problem.setMessage(messageFor(row));
+
+          result.getProblems().add(problem);
+        }
+      }
+
+      handler.handle(Future.succeededFuture(result));
+    });
+  }
+
+  private String sql(String tenantId) {
+    List<String> checks = new ArrayList<>();
+
+    checks.add("(CASE WHEN jsonb_typeof(record) <> 'object' THEN 'object' END, NULL)");
+    checks.add(String.format(
+      "(CASE WHEN record->>'id' !~ '%s' THEN 'id' END, NULL)", UUID_PATTERN));
+    checks.add("(CASE WHEN occurrences > 1 THEN 'duplicate' END, NULL)");
+
+    for(String property : requiredProperties) {
+      checks.add(String.format(
+        "(CASE WHEN record->>'%s' IS NULL THEN 'required' END, '%1$s')",
+        property));
+    }
+
+    for(String property : stringProperties) {
+      checks.add(String.format(
+        "(CASE WHEN jsonb_typeof(record->'%s') NOT IN ('string', 'null')"
+          + " THEN 'string' END, '%1$s')", property));
+    }
+
+    for(Map.Entry<String, String> reference : referencedTables.entrySet()) {
+      checks.add(String.format(
+        "(CASE WHEN record->>'%s' IS NOT NULL AND NOT EXISTS"
+          + " (SELECT 1 FROM %s r WHERE r._id::text = record->>'%1$s')"
+          + " THEN 'reference' END, '%1$s')",
+        reference.getKey(),
+        StorageSql.tableName(tenantId, reference.getValue())));
+    }
+
+    //blank lines are skipped, records without an ID are given a random one
+    //(the statement contains no other ? as the driver would take it as a parameter)
+    return String.format(
+      "WITH input AS ("
+        + " SELECT line, value::jsonb AS record"
+        + " FROM regexp_split_to_table(?, '\\n') WITH ORDINALITY AS lines(value, line)"
+        + " WHERE value ~ '\\S'),"
+        + " identified AS ("
+        + " SELECT line, record, count(*) OVER (PARTITION BY record->>'id') AS occurrences"
+        + " FROM (SELECT line, CASE WHEN jsonb_typeof(record) = 'object' AND record->>'id' IS NULL"
+        + " THEN record || jsonb_build_object('id', md5(random()::text || clock_timestamp()::text)::uuid)"
+        + " ELSE record END AS record FROM input) AS records),"
+        + " problem AS ("
+        + " SELECT line, kind, property, record->>property AS value"
+        + " FROM identified, LATERAL (VALUES %s) AS checks(kind, property)"
+        + " WHERE kind IS NOT NULL),"
+        + " inserted AS ("
+        + " INSERT INTO %s (_id, jsonb)"
+        + " SELECT (record->>'id')::uuid, record FROM identified"
+        + " WHERE NOT EXISTS (SELECT 1 FROM problem)"
+        + " RETURNING 1)"
+        + " SELECT NULL::bigint AS line, NULL AS kind, NULL AS property, NULL AS value,"
+        + " (SELECT count(*) FROM inserted) AS loaded"
+        + " UNION ALL"
+        + " (SELECT line, kind, property, value, NULL FROM problem"
+        + " ORDER BY line LIMIT %s)",
+      String.join(", ", checks),
+      StorageSql.tableName(tenantId, table),
+      MAXIMUM_PROBLEMS);
+  }
+
+  private String messageFor(JsonObject problem) {
+    String property = problem.getString("property");
+
+    switch(problem.getString("kind")) {
+      case "object":
+        return "Each line must be a JSON object";
+      case "id":
+        return "ID must be a UUID";
+      case "duplicate":
+        return "ID is duplicated within the load";
+      case "required":
+        return property + " is required";
+      case "string":
+        return property + " must be a string";
+      case "reference":
+        return notFoundMessages.get(property).apply(problem.getString("value"));
+      default:
+        return problem.getString("kind");
+    }
+  }
+}
@@ -0,0 +1,264 @@
+package org.folio.rest.support;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Changes made to the records in a table, recorded (and notified) by a trigger,
+ * fetched a page at a time by following a resume token
+ *
+ * Changes are provided in order of the ID of the transaction which made them
+ * (and in the order they were made within a transaction), and only once
+ * every transaction with the same or a lower ID has finished. A transaction
+ * which commits later than another with a higher ID is therefore not passed
+ * over by a resume token, as the token never moves beyond it until it
+ * has finished.
+ *
+ * Changes are kept for a limited time, older changes are removed as changes
+ * are made (by the trigger, see template_create_tenant.sql), whether or not
+ * they are ever fetched.
+ */
+public class ChangeFeed {
+
+  public static final String LATEST = "latest";
+
+  /**
+   * Number of days changes are kept for, must be the same as in template_create_tenant.sql
+   */
+  public static final int RETENTION_DAYS = 7;
+
+  private static final String CHANGE_TABLE = "change";
+  private static final String TOKEN_SEPARATOR = "-";
+
+  private final List<JsonObject> changes;
+  private final String resumeToken;
+
+  private ChangeFeed(List<JsonObject> changes, String resumeToken) {
+    this.changes = changes;
+    this.resumeToken = resumeToken;
+  }
+
+  /**
+   * @return changes with recordId (absent when every record was removed),
+   * operation (INSERT, UPDATE, DELETE or TRUNCATE) and changedDate properties
+   */
+  public List<JsonObject> getChanges() {
+    return changes;
+  }
+
+  public <T> List<T> getChanges(Class<T> type) {
+    return changes.stream()
+      .map(change -> Json.decodeValue(change.encode(), type))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * @return token for fetching the changes which follow these
+   */
+  public String getResumeToken() {
+    return resumeToken;
+  }
+
+  public static boolean isValidResumeToken(String token) {
+    if(token == null || LATEST.equals(token)) {
+      return true;
+    }
+
+    try {
+      positionFrom(token);
+      return true;
+    }
+    catch(IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @param changedSince ISO 8601 date and time with offset
+   * @return why records changed since then cannot be determined, null when they can
+   */
+  public static String invalidChangedSinceMessage(String changedSince) {
+    OffsetDateTime since;
+
+    try {
+      since = OffsetDateTime.parse(changedSince);
+    }
+    catch(DateTimeParseException e) {
+      return "modifiedSince must be a date and time with an offset, e.g. 2017-08-14T10:23:43Z";
+    }
+
+    //deletions are only known for as long as changes are kept
+    if(since.isBefore(OffsetDateTime.now().minusDays(RETENTION_DAYS))) {
+      return String.format(
+        "modifiedSince cannot be more than %s days ago, fetch every record instead",
+        RETENTION_DAYS);
+    }
+
+    return null;
+  }
+
+  /**
+   * Finds the records deleted (and not created again) at or after a point in time
+   *
+   * @param vertx
+   * @param tenantId
+   * @param table
+   * @param changedSince ISO 8601 date and time with offset, no more than RETENTION_DAYS ago
+   * @param handler receives the IDs of the deleted records
+   */
+  public static void deletedSince(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String changedSince,
+    Handler<AsyncResult<List<String>>> handler) {
+
+    String sql = String.format(
+      "SELECT DISTINCT c.recordid::text AS id FROM %s c"
+        + " WHERE c.tablename = ? AND c.operation = 'DELETE' AND c.changed >= ?::timestamptz"
+        + " AND NOT EXISTS (SELECT 1 FROM %s r WHERE r._id = c.recordid)",
+      StorageSql.tableName(tenantId, CHANGE_TABLE),
+      StorageSql.tableName(tenantId, table));
+
+    JsonArray parameters = new JsonArray()
+      .add(table)
+      .add(changedSince);
+
+    StorageSql.query(vertx, tenantId, sql, parameters, reply -> {
+      if(reply.failed()) {
+        handler.handle(Future.failedFuture(reply.cause()));
+        return;
+      }
+
+      handler.handle(Future.succeededFuture(reply.result().getRows().stream()
+        .map(row -> row.getString("id"))
+        .collect(Collectors.toList())));
+    });
+  }
+
+  /**
+   * Fetches the changes which follow a resume token
+   *
+   * @param vertx
+   * @param tenantId
+   * @param table
+   * @param resumeToken from a previous page, LATEST for none of the changes
+   * made so far, or null for every change still kept
+   * @param limit maximum number of changes
+   * @param handler
+   */
+  public static void fetch(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String resumeToken,
+    int limit,
+    Handler<AsyncResult<ChangeFeed>> handler) {
+
+    String changeTable = StorageSql.tableName(tenantId, CHANGE_TABLE);
+
+    if(LATEST.equals(resumeToken)) {
+      //every change from a transaction which has not yet finished follows
+      String sql = "SELECT txid_snapshot_xmin(txid_current_snapshot()) - 1 AS txid";
+
+      StorageSql.query(vertx, tenantId, sql, reply -> {
+        if(reply.failed()) {
+          handler.handle(Future.failedFuture(reply.cause()));
+          return;
+        }
+
+        handler.handle(Future.succeededFuture(new ChangeFeed(new ArrayList<>(),
+          tokenFor(reply.result().getRows().get(0).getLong("txid"), Long.MAX_VALUE))));
+      });
+
+      return;
+    }
+
+    long[] after = resumeToken == null ? new long[] { 0, 0 } : positionFrom(resumeToken);
+
+    //every transaction with a lower ID than the oldest still in progress has
+    //finished, so no more changes can appear before the last one provided
+    String sql = String.format(
+      "SELECT id, txid, recordid::text AS recordid, operation,"
+        + " to_json(changed)#>>'{}' AS changed"
+        + " FROM %s WHERE tablename = ? AND (txid, id) > (?::bigint, ?::bigint)"
+        + " AND txid < txid_snapshot_xmin(txid_current_snapshot())"
+        + " ORDER BY txid, id LIMIT ?",
+      changeTable);
+
+    JsonArray parameters = new JsonArray()
+      .add(table)
+      .add(after[0])
+      .add(after[1])
+      .add(limit);
+
+    StorageSql.query(vertx, tenantId, sql, parameters, reply -> {
+      if(reply.failed()) {
+        handler.handle(Future.failedFuture(reply.cause()));
+        return;
+      }
+
+      List<JsonObject> rows = reply.result().getRows();
+
+      String nextToken = rows.isEmpty()
+        ? tokenFor(after[0], after[1])
+        : tokenFor(rows.get(rows.size() - 1).getLong("txid"),
+            rows.get(rows.size() - 1).getLong("id"));
+
+      handler.handle(Future.succeededFuture(new ChangeFeed(
+        rows.stream().map(ChangeFeed::changeFrom).collect(Collectors.toList()),
+        nextToken)));
+    });
+  }
+
+  private static String tokenFor(long txid, long id) {
+    return txid + TOKEN_SEPARATOR + id;
+  }
+
+  /**
+   * @return transaction ID and change ID of the last change provided
+   */
+  private static long[] positionFrom(String token) {
+    String[] parts = token.split(TOKEN_SEPARATOR, -1);
+
+    if(parts.length != 2) {
+      throw new IllegalArgumentException("Invalid resume token: " + token);
+    }
+
+    try {
+      long[] position = { Long.parseLong(parts[0]), Long.parseLong(parts[1]) };
+
+      if(position[0] < 0 || position[1] < 0) {
+        throw new IllegalArgumentException("Invalid resume token: " + token);
+      }
+
+      return position;
+    }
+    catch(NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid resume token: " + token);
+    }
+  }
+
+  private static JsonObject changeFrom(JsonObject row) {
+    JsonObject change = new JsonObject()
+      .put("operation", row.getString("operation"))
+      .put("changedDate", row.getString("changed"));
+
+    if(row.getString("recordid") != null) {
+      change.put("recordId", row.getString("recordid"));
+    }
+
+    return change;
+  }
+}
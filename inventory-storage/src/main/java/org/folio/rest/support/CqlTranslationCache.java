@@ -0,0 +1,114 @@
+package org.folio.rest.support;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
+import org.z3950.zing.cql.cql2pgjson.QueryValidationException;
+
+/**
+ * Remembers the SQL criteria (WHERE and ORDER BY clauses) translated from CQL
+ * queries, so that the same query is only parsed and translated once,
+ * rather than for every request
+ *
+ * Properties which are also kept in columns of their own are compared
+ * using those columns (see ScalarColumns), keyword searches on some
+ * properties use a text search column (see FullTextSearch).
+ *
+ * The translation only depends upon the table and the query (not the tenant),
+ * so translations are shared by all tenants. Queries which cannot be
+ * translated are not remembered. When full, arbitrary translations are
+ * forgotten to make room, which is cheaper than tracking use on every lookup.
+ */
+public class CqlTranslationCache {
+
+  public static final int MAXIMUM_TRANSLATIONS = 1000;
+
+  private static final ConcurrentMap<String, String> translations =
+    new ConcurrentHashMap<>();
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  private CqlTranslationCache() { }
+
+  /**
+   * @param table records are stored in the jsonb column of this table
+   * @param query CQL, may be null
+   * @return criteria for use after WHERE, null when there is no query
+   * @throws QueryValidationException when the query cannot be translated
+   */
+  public static String whereClause(String table, String query)
+    throws QueryValidationException {
+
+    return translate(table, query, false);
+  }
+
+  /**
+   * As whereClause, except that records found by keyword searches are
+   * ordered by how well they match, when the query is not sorted
+   * (see FullTextSearch)
+   *
+   * @param table records are stored in the jsonb column of this table
+   * @param query CQL, may be null
+   * @return criteria for use after WHERE, null when there is no query
+   * @throws QueryValidationException when the query cannot be translated
+   */
+  public static String rankedWhereClause(String table, String query)
+    throws QueryValidationException {
+
+    return translate(table, query, true);
+  }
+
+  private static String translate(String table, String query, boolean ranked)
+    throws QueryValidationException {
+
+    if(query == null) {
+      return null;
+    }
+
+    String key = (ranked ? "ranked\n" : "") + table + "\n" + query;
+
+    String translated = translations.get(key);
+
+    if(translated != null) {
+      hits.incrementAndGet();
+      return translated;
+    }
+
+    misses.incrementAndGet();
+
+    translated = FullTextSearch.translate(table, query, ranked);
+
+    if(translated == null) {
+      translated = new CQL2PgJSON(table + ".jsonb").cql2pgJson(query);
+    }
+
+    translated = ScalarColumns.useColumns(table, translated);
+
+    makeRoom();
+
+    translations.put(key, translated);
+
+    return translated;
+  }
+
+  public static long hits() {
+    return hits.get();
+  }
+
+  public static long misses() {
+    return misses.get();
+  }
+
+  private static void makeRoom() {
+    Iterator<String> keys = translations.keySet().iterator();
+
+    while(translations.size() >= MAXIMUM_TRANSLATIONS && keys.hasNext()) {
+      keys.next();
+      keys.remove();
+    }
+  }
+}
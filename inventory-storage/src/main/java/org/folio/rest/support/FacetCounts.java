@@ -0,0 +1,155 @@
+package org.folio.rest.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Counts the records with each combination of values of some fields,
+ * using a single grouped query rather than fetching every record
+ *
+ * Fields which are also kept in columns of their own (see ScalarColumns)
+ * are grouped using the column (and its index), others are extracted
+ * from the jsonb.
+ */
+public class FacetCounts {
+
+  public static final int MAXIMUM_FIELDS = 5;
+
+  //property names are put into the statement, so are restricted to letters and digits
+  private static final Pattern FIELD = Pattern.compile(
+    "^[A-Za-z][A-Za-z0-9]*(\\.[A-Za-z][A-Za-z0-9]*)*$");
+
+  private final List<String> values;
+  private final int count;
+
+  private FacetCounts(List<String> values, int count) {
+    this.values = values;
+    this.count = count;
+  }
+
+  /**
+   * @return value of each field (in the same order as the fields), null when absent
+   */
+  public List<String> getValues() {
+    return values;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * @param fields
+   * @return why the fields cannot be used, null when they can
+   */
+  public static String invalidFieldsMessage(Collection<String> fields) {
+    if(fields.isEmpty()) {
+      return "At least one facet field is required";
+    }
+
+    if(fields.size() > MAXIMUM_FIELDS) {
+      return String.format("No more than %s facet fields can be used at once",
+        MAXIMUM_FIELDS);
+    }
+
+    return fields.stream()
+      .filter(field -> !FIELD.matcher(field).matches())
+      .findFirst()
+      .map(field -> "Invalid facet field: " + field)
+      .orElse(null);
+  }
+
+  /**
+   * @param vertx
+   * @param tenantId
+   * @param table
+   * @param whereClause criteria, e.g. generated from CQL, may be null
+   * (any sort is ignored)
+   * @param fields to group by, nested properties separated by ., must be valid
+   * @param limit maximum number of groups, the largest are provided
+   * @param handler
+   */
+  public static void count(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String whereClause,
+    List<String> fields,
+    int limit,
+    Handler<AsyncResult<List<FacetCounts>>> handler) {
+
+    List<String> selected = new ArrayList<>();
+    List<String> positions = new ArrayList<>();
+
+    for(int index = 0; index < fields.size(); index++) {
+      selected.add(String.format("%s AS value%s",
+        expressionFor(table, fields.get(index)), index));
+
+      positions.add(String.valueOf(index + 1));
+    }
+
+    //groups are always ordered by their size, any sort is ignored
+    String criteria = StorageSql.withoutOrderBy(whereClause);
+
+    String sql = String.format(
+      "SELECT %s, count(*) AS count FROM %s%s GROUP BY %s ORDER BY count DESC, %s LIMIT %s",
+      String.join(", ", selected),
+      StorageSql.tableName(tenantId, table),
+      criteria == null || criteria.isEmpty()
+        ? ""
+        : " WHERE " + criteria,
+      String.join(", ", positions),
+      String.join(", ", positions),
+      limit);
+
+    PreparedStatementCache.query(vertx, tenantId, sql, reply -> {
+      if(reply.failed()) {
+        handler.handle(Future.failedFuture(reply.cause()));
+        return;
+      }
+
+      handler.handle(Future.succeededFuture(reply.result().getRows().stream()
+        .map(row -> groupFrom(row, fields.size()))
+        .collect(Collectors.toList())));
+    });
+  }
+
+  private static String expressionFor(String table, String field) {
+    String column = ScalarColumns.column(table, field);
+
+    if(column != null) {
+      return column;
+    }
+
+    //e.g. jsonb->'location'->>'name'
+    String[] path = field.split("\\.");
+
+    StringBuilder expression = new StringBuilder("jsonb");
+
+    for(int index = 0; index < path.length; index++) {
+      expression.append(index == path.length - 1 ? "->>" : "->")
+        .append("'").append(path[index]).append("'");
+    }
+
+    return expression.toString();
+  }
+
+  private static FacetCounts groupFrom(JsonObject row, int fieldCount) {
+    List<String> values = new ArrayList<>();
+
+    for(int index = 0; index < fieldCount; index++) {
+      values.add(row.getString("value" + index));
+    }
+
+    return new FacetCounts(values, row.getLong("count").intValue());
+  }
+}
@@ -0,0 +1,184 @@
+package org.folio.rest.support;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.z3950.zing.cql.CQLAndNode;
+import org.z3950.zing.cql.CQLNode;
+import org.z3950.zing.cql.CQLParseException;
+import org.z3950.zing.cql.CQLParser;
+import org.z3950.zing.cql.CQLSortNode;
+import org.z3950.zing.cql.CQLTermNode;
+import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
+import org.z3950.zing.cql.cql2pgjson.QueryValidationException;
+
+/**
+ * Translates keyword searches (the CQL all and any relations) on some
+ * properties into text searches against a tsvector column (maintained by a
+ * trigger, see template_create_tenant.sql) with a GIN index, rather than
+ * matching a pattern against the property of every row
+ *
+ * Only searches which must hold for the whole query (those joined to the
+ * rest of the query by and) are translated this way, other parts of the
+ * query are translated as usual. Words are matched whole, a trailing *
+ * matches words starting with the rest of the word, a leading * is ignored.
+ *
+ * The text search configuration must be the same as the one used to
+ * build the column.
+ */
+public class FullTextSearch {
+
+  public static final String CONFIGURATION = "simple";
+
+  private static final Map<String, Map<String, String>> columns = new HashMap<>();
+
+  static {
+    columns.put("instance", Collections.singletonMap("title", "title_tsvector"));
+  }
+
+  private FullTextSearch() { }
+
+  /**
+   * @param table records are stored in the jsonb column of this table
+   * @param query CQL, may be null
+   * @param ranked whether to order the records by how well they match
+   * (unless the query is sorted)
+   * @return criteria for use after WHERE, null when the query has no
+   * keyword searches which can use a tsvector column
+   * @throws QueryValidationException when the query cannot be translated
+   */
+  public static String translate(String table, String query, boolean ranked)
+    throws QueryValidationException {
+
+    Map<String, String> searchable = columns.get(table);
+
+    if(searchable == null || query == null) {
+      return null;
+    }
+
+    CQLNode root;
+
+    try {
+      root = new CQLParser().parse(query);
+    }
+    catch(CQLParseException | IOException e) {
+      //reported by the usual translation
+      return null;
+    }
+
+    CQLNode criteria = root instanceof CQLSortNode
+      ? ((CQLSortNode) root).getSubtree()
+      : root;
+
+    List<CQLNode> conjuncts = new ArrayList<>();
+    conjunctsOf(criteria, conjuncts);
+
+    List<String> conditions = new ArrayList<>();
+    List<String> ranks = new ArrayList<>();
+    List<String> remaining = new ArrayList<>();
+
+    for(CQLNode node : conjuncts) {
+      String search = node instanceof CQLTermNode
+        ? searchFor(searchable, (CQLTermNode) node)
+        : null;
+
+      if(search == null) {
+        remaining.add("(" + node.toCQL() + ")");
+        continue;
+      }
+
+      String column = String.format("%s.%s", table,
+        searchable.get(((CQLTermNode) node).getIndex()));
+
+      conditions.add(String.format("%s @@ %s", column, search));
+      ranks.add(String.format("ts_rank(%s, %s)", column, search));
+    }
+
+    if(conditions.isEmpty()) {
+      return null;
+    }
+
+    CQL2PgJSON translator = new CQL2PgJSON(table + ".jsonb");
+
+    if(!remaining.isEmpty()) {
+      conditions.add(String.format("(%s)",
+        translator.cql2pgJson(String.join(" and ", remaining))));
+    }
+
+    String whereClause = String.join(" AND ", conditions);
+
+    if(root instanceof CQLSortNode) {
+      //the usual translation of the sort
+      String translated = translator.cql2pgJson(query);
+      int orderBy = translated.lastIndexOf(" ORDER BY ");
+
+      if(orderBy >= 0) {
+        whereClause += translated.substring(orderBy);
+      }
+    }
+    else if(ranked) {
+      //ties are ordered by ID so that pages are stable
+      whereClause += String.format(" ORDER BY %s DESC, %s._id",
+        String.join(" + ", ranks), table);
+    }
+
+    return whereClause;
+  }
+
+  private static void conjunctsOf(CQLNode node, List<CQLNode> conjuncts) {
+    if(node instanceof CQLAndNode) {
+      conjunctsOf(((CQLAndNode) node).getLeftOperand(), conjuncts);
+      conjunctsOf(((CQLAndNode) node).getRightOperand(), conjuncts);
+    }
+    else {
+      conjuncts.add(node);
+    }
+  }
+
+  private static String searchFor(
+    Map<String, String> searchable,
+    CQLTermNode node) {
+
+    if(!searchable.containsKey(node.getIndex())) {
+      return null;
+    }
+
+    String relation = node.getRelation().getBase();
+
+    String operator;
+
+    if("all".equalsIgnoreCase(relation)) {
+      operator = " & ";
+    }
+    else if("any".equalsIgnoreCase(relation)) {
+      operator = " | ";
+    }
+    else {
+      return null;
+    }
+
+    //only letters and digits are kept, so the words need no quoting
+    List<String> words = new ArrayList<>();
+
+    for(String word : node.getTerm().split("[^\\p{L}\\p{N}*]+")) {
+      boolean prefix = word.endsWith("*");
+      String letters = word.replace("*", "");
+
+      if(!letters.isEmpty()) {
+        words.add(prefix ? letters + ":*" : letters);
+      }
+    }
+
+    //e.g. a search for * is left to the usual translation
+    if(words.isEmpty()) {
+      return null;
+    }
+
+    return String.format("to_tsquery('%s'::regconfig, '%s')",
+      CONFIGURATION, String.join(operator, words));
+  }
+}
@@ -0,0 +1,357 @@
+package org.folio.rest.support;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A page of records fetched in primary key order, starting after the record
+ * identified by a cursor
+ *
+ * Unlike limit and offset, fetching a page only reads the records in that page
+ * (via the primary key index), so walking every record in a table costs the
+ * same for every page
+ *
+ * Records changed since a point in time are instead fetched in the order they
+ * were last changed (via the update_date index), and their cursor identifies
+ * both when the last record in the page was changed and its ID
+ *
+ * A record's update_date is when the transaction which changed it started,
+ * rather than when it was committed. So that a transaction which commits
+ * after later changes have been fetched is not passed over, only records
+ * changed before the oldest transaction still in progress (for the tenant's
+ * database user) are fetched. Once every page has been fetched, the records
+ * changed since then are fetched by the next sync (see getChangedUntil).
+ */
+public class KeysetPage {
+
+  /**
+   * Cursor to use for fetching the first page
+   */
+  public static final String FIRST_PAGE_CURSOR = "start";
+
+  private static final String CHANGED_SEPARATOR = "|";
+
+  private final List<JsonObject> records;
+  private final String nextCursor;
+  private final String changedUntil;
+
+  private KeysetPage(List<JsonObject> records, String nextCursor, String changedUntil) {
+    this.records = records;
+    this.nextCursor = nextCursor;
+    this.changedUntil = changedUntil;
+  }
+
+  /**
+   * @return records in this page, in the form they are stored
+   */
+  public List<JsonObject> getRecords() {
+    return records;
+  }
+
+  public <T> List<T> getRecords(Class<T> type) {
+    return records.stream()
+      .map(record -> Json.decodeValue(record.encode(), type))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * @return cursor for fetching the following page, null when this is the last page
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  /**
+   * @return for the last page of changed records, when the records changed
+   * from then on are yet to be fetched (to use as the changedSince of the next
+   * sync), null otherwise
+   */
+  public String getChangedUntil() {
+    return changedUntil;
+  }
+
+  public static boolean isValidCursor(String cursor) {
+    try {
+      idFromCursor(cursor);
+      return true;
+    }
+    catch(IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @param cursor from a page of records changed since a point in time
+   */
+  public static boolean isValidChangedCursor(String cursor) {
+    try {
+      changedPositionFromCursor(cursor);
+      return true;
+    }
+    catch(IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Fetches the page which follows the cursor
+   *
+   * @param vertx
+   * @param tenantId
+   * @param table
+   * @param whereClause additional criteria, e.g. generated from CQL, may be null
+   * (any sort is ignored)
+   * @param cursor from a previous page, or FIRST_PAGE_CURSOR
+   * @param limit maximum number of records in the page
+   * @param handler
+   */
+  public static void fetch(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String whereClause,
+    String cursor,
+    int limit,
+    Handler<AsyncResult<KeysetPage>> handler) {
+
+    String lastId;
+
+    try {
+      lastId = idFromCursor(cursor);
+    }
+    catch(IllegalArgumentException e) {
+      handler.handle(Future.failedFuture(e));
+      return;
+    }
+
+    List<String> conditions = new ArrayList<>();
+    JsonArray parameters = new JsonArray();
+
+    if(lastId != null) {
+      conditions.add("_id > ?::uuid");
+      parameters.add(lastId);
+    }
+
+    //records are always in the order of the cursor, any sort is ignored
+    String criteria = StorageSql.withoutOrderBy(whereClause);
+
+    if(criteria != null && !criteria.isEmpty()) {
+      conditions.add(String.format("(%s)", criteria));
+    }
+
+    //one more than needed, to find out whether there is a following page
+    parameters.add(limit + 1);
+
+    String sql = String.format(
+      "SELECT _id::text AS id, jsonb::text AS record FROM %s %s ORDER BY _id LIMIT ?",
+      StorageSql.tableName(tenantId, table),
+      conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions));
+
+    fetchPage(vertx, tenantId, sql, parameters, limit,
+      row -> cursorFor(row.getString("id")), null, handler);
+  }
+
+  /**
+   * Fetches the page of records changed (or created) at or after a point in time,
+   * which follows the cursor
+   *
+   * @param vertx
+   * @param tenantId
+   * @param table must have an update_date column
+   * @param whereClause additional criteria, e.g. generated from CQL, may be null
+   * (any sort is ignored)
+   * @param changedSince ISO 8601 date and time with offset
+   * @param cursor from a previous page of changed records, null or FIRST_PAGE_CURSOR
+   * for the first page
+   * @param limit maximum number of records in the page
+   * @param handler
+   */
+  public static void fetchChangedSince(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String whereClause,
+    String changedSince,
+    String cursor,
+    int limit,
+    Handler<AsyncResult<KeysetPage>> handler) {
+
+    String[] lastPosition;
+
+    try {
+      lastPosition = changedPositionFromCursor(cursor);
+    }
+    catch(IllegalArgumentException e) {
+      handler.handle(Future.failedFuture(e));
+      return;
+    }
+
+    //found before the page is fetched, so any transaction which has not
+    //committed by then started at or after the horizon (or starts later)
+    String horizonSql = "SELECT to_json(coalesce(min(xact_start), now()))#>>'{}' AS horizon"
+      + " FROM pg_stat_activity"
+      + " WHERE usename = current_user AND datname = current_database()";
+
+    StorageSql.query(vertx, tenantId, horizonSql, horizon -> {
+      if(horizon.failed()) {
+        handler.handle(Future.failedFuture(horizon.cause()));
+        return;
+      }
+
+      fetchChangedBetween(vertx, tenantId, table, whereClause, changedSince,
+        horizon.result().getRows().get(0).getString("horizon"), lastPosition,
+        limit, handler);
+    });
+  }
+
+  private static void fetchChangedBetween(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String whereClause,
+    String changedSince,
+    String changedUntil,
+    String[] lastPosition,
+    int limit,
+    Handler<AsyncResult<KeysetPage>> handler) {
+
+    List<String> conditions = new ArrayList<>();
+    JsonArray parameters = new JsonArray();
+
+    conditions.add("update_date >= ?::timestamptz");
+    parameters.add(changedSince);
+
+    conditions.add("update_date < ?::timestamptz");
+    parameters.add(changedUntil);
+
+    if(lastPosition != null) {
+      conditions.add("(update_date, _id) > (?::timestamptz, ?::uuid)");
+      parameters.add(lastPosition[0]);
+      parameters.add(lastPosition[1]);
+    }
+
+    //records are always in the order of the cursor, any sort is ignored
+    String criteria = StorageSql.withoutOrderBy(whereClause);
+
+    if(criteria != null && !criteria.isEmpty()) {
+      conditions.add(String.format("(%s)", criteria));
+    }
+
+    parameters.add(limit + 1);
+
+    //the change time is provided as JSON, which keeps every fractional digit
+    String sql = String.format(
+      "SELECT _id::text AS id, jsonb::text AS record,"
+        + " to_json(update_date)#>>'{}' AS changed"
+        + " FROM %s WHERE %s ORDER BY update_date, _id LIMIT ?",
+      StorageSql.tableName(tenantId, table),
+      String.join(" AND ", conditions));
+
+    fetchPage(vertx, tenantId, sql, parameters, limit,
+      row -> cursorFor(row.getString("changed") + CHANGED_SEPARATOR
+        + row.getString("id")),
+      changedUntil, handler);
+  }
+
+  private static void fetchPage(
+    Vertx vertx,
+    String tenantId,
+    String sql,
+    JsonArray parameters,
+    int limit,
+    Function<JsonObject, String> cursorForRow,
+    String changedUntil,
+    Handler<AsyncResult<KeysetPage>> handler) {
+
+    //the criteria have their values inline, so would be prepared once per value
+    PreparedStatementCache.query(vertx, tenantId, sql, parameters, reply -> {
+      if(reply.failed()) {
+        handler.handle(Future.failedFuture(reply.cause()));
+        return;
+      }
+
+      List<JsonObject> rows = reply.result().getRows();
+
+      boolean hasNextPage = rows.size() > limit;
+
+      List<JsonObject> pageRows = hasNextPage ? rows.subList(0, limit) : rows;
+
+      String nextCursor = hasNextPage
+        ? cursorForRow.apply(pageRows.get(pageRows.size() - 1))
+        : null;
+
+      handler.handle(Future.succeededFuture(new KeysetPage(
+        pageRows.stream()
+          .map(row -> new JsonObject(row.getString("record")))
+          .collect(Collectors.toList()),
+        nextCursor,
+        hasNextPage ? null : changedUntil)));
+    });
+  }
+
+  /**
+   * @return when the last record was changed and its ID, null for the first page
+   */
+  private static String[] changedPositionFromCursor(String cursor) {
+    if(cursor == null || FIRST_PAGE_CURSOR.equals(cursor)) {
+      return null;
+    }
+
+    String position = new String(Base64.getUrlDecoder().decode(cursor),
+      StandardCharsets.UTF_8);
+
+    String[] parts = position.split(Pattern.quote(CHANGED_SEPARATOR));
+
+    if(parts.length != 2 || !StorageSql.isUUID(parts[1])) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+
+    try {
+      OffsetDateTime.parse(parts[0]);
+    }
+    catch(DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+
+    return parts;
+  }
+
+  private static String cursorFor(String id) {
+    return Base64.getUrlEncoder().withoutPadding()
+      .encodeToString(id.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String idFromCursor(String cursor) {
+    if(cursor == null) {
+      throw new IllegalArgumentException("Cursor must be provided");
+    }
+
+    if(FIRST_PAGE_CURSOR.equals(cursor)) {
+      return null;
+    }
+
+    String id = new String(Base64.getUrlDecoder().decode(cursor),
+      StandardCharsets.UTF_8);
+
+    if(!StorageSql.isUUID(id)) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+
+    return id;
+  }
+}
@@ -0,0 +1,141 @@
+package org.folio.rest.support;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.folio.rest.impl.MaterialTypeAPI;
+import org.folio.rest.tools.utils.TenantTool;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Remembers, per tenant, which material types are known to exist,
+ * so that item writes do not need to query the material type table
+ * every time.
+ *
+ * Only existence is cached, a material type that is not found is always
+ * looked up again. Entries are removed when material types are changed via
+ * this module instance, and expire after a short lifetime so that changes made
+ * via other instances of this module are eventually noticed.
+ */
+public class MaterialTypeCache {
+
+  private static final Logger log = LoggerFactory.getLogger(MaterialTypeCache.class);
+
+  private static final long ENTRY_LIFETIME_MILLIS = 60 * 1000;
+
+  private static final ConcurrentMap<String, ConcurrentMap<String, Long>> tenants =
+    new ConcurrentHashMap<>();
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  private MaterialTypeCache() { }
+
+  /**
+   * Determines which of the material types exist
+   *
+   * @param vertx
+   * @param tenantId
+   * @param materialTypeIds ids to check, those which are not UUIDs are never found
+   * @param handler receives the subset of the ids which exist
+   */
+  public static void existing(
+    Vertx vertx,
+    String tenantId,
+    Set<String> materialTypeIds,
+    Handler<AsyncResult<Set<String>>> handler) {
+
+    ConcurrentMap<String, Long> known = knownFor(tenantId);
+
+    long now = System.currentTimeMillis();
+
+    Set<String> found = new HashSet<>();
+    Set<String> toLookup = new HashSet<>();
+
+    for (String id : materialTypeIds) {
+      Long expiry = known.get(id);
+
+      if(expiry != null && expiry > now) {
+        hits.incrementAndGet();
+        found.add(id);
+      }
+      else {
+        misses.incrementAndGet();
+
+        if(StorageSql.isUUID(id)) {
+          toLookup.add(id);
+        }
+      }
+    }
+
+    if(toLookup.isEmpty()) {
+      handler.handle(Future.succeededFuture(found));
+      return;
+    }
+
+    String sql = String.format(
+      "SELECT jsonb->>'id' AS id FROM %s WHERE _id IN (%s)",
+      StorageSql.tableName(tenantId, MaterialTypeAPI.MATERIAL_TYPE_TABLE),
+      StorageSql.placeholders(toLookup.size()));
+
+    StorageSql.query(vertx, tenantId, sql, new JsonArray(new ArrayList<>(toLookup)),
+      reply -> {
+        if(reply.succeeded()) {
+          Set<String> looked = reply.result().getRows().stream()
+            .map(row -> row.getString("id"))
+            .collect(Collectors.toSet());
+
+          long expiry = System.currentTimeMillis() + ENTRY_LIFETIME_MILLIS;
+
+          looked.forEach(id -> known.put(id, expiry));
+          found.addAll(looked);
+
+          handler.handle(Future.succeededFuture(found));
+        }
+        else {
+          handler.handle(Future.failedFuture(reply.cause()));
+        }
+      });
+  }
+
+  /**
+   * Forgets all of the material types known for a tenant,
+   * should be used whenever material types are changed
+   *
+   * @param tenantId
+   */
+  public static void invalidate(String tenantId) {
+    log.debug("Invalidating material type cache for " + tenantId);
+
+    tenants.remove(normalise(tenantId));
+  }
+
+  public static long hits() {
+    return hits.get();
+  }
+
+  public static long misses() {
+    return misses.get();
+  }
+
+  private static ConcurrentMap<String, Long> knownFor(String tenantId) {
+    return tenants.computeIfAbsent(normalise(tenantId),
+      key -> new ConcurrentHashMap<>());
+  }
+
+  private static String normalise(String tenantId) {
+    return TenantTool.calculateTenantId(tenantId);
+  }
+}
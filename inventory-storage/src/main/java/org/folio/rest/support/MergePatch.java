@@ -0,0 +1,126 @@
+package org.folio.rest.support;
+
+import java.util.List;
+import java.util.function.Function;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.sql.SQLConnection;
+
+/**
+ * Applies a JSON merge patch to a record in a single UPDATE statement,
+ * using the jsonb_merge_patch function defined for each tenant, so that
+ * only the patch needs to be sent to the database
+ *
+ * The patched record is checked before the change is committed (within the
+ * same transaction), so that a patch cannot leave a record which can no
+ * longer be read (e.g. with a property of the wrong type).
+ */
+public class MergePatch {
+
+  private static final String MERGE_FUNCTION = "jsonb_merge_patch";
+
+  private MergePatch() { }
+
+  /**
+   * @param vertx
+   * @param tenantId
+   * @param table
+   * @param id must be a UUID
+   * @param patch properties to change, a property with a null value is removed
+   * @param invalidMessage why a patched record is invalid, null when it is valid
+   * @param handler receives whether the record was found (and so changed),
+   * fails with an InvalidRecordException when the patched record is invalid
+   */
+  public static void apply(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String id,
+    JsonObject patch,
+    Function<JsonObject, String> invalidMessage,
+    Handler<AsyncResult<Boolean>> handler) {
+
+    String sql = String.format(
+      "UPDATE %s SET jsonb = %s(jsonb, ?::jsonb) WHERE _id = ?::uuid"
+        + " RETURNING jsonb::text AS record",
+      StorageSql.tableName(tenantId, table),
+      StorageSql.tableName(tenantId, MERGE_FUNCTION));
+
+    JsonArray parameters = new JsonArray()
+      .add(patch.encode())
+      .add(id);
+
+    StorageSql.withConnection(vertx, tenantId, handler, connection ->
+      connection.setAutoCommit(false, begun -> {
+        if(begun.failed()) {
+          connection.close();
+          handler.handle(Future.failedFuture(begun.cause()));
+          return;
+        }
+
+        connection.queryWithParams(sql, parameters, reply -> {
+          if(reply.failed()) {
+            finish(connection, false, Future.failedFuture(reply.cause()), handler);
+            return;
+          }
+
+          List<JsonObject> rows = reply.result().getRows();
+
+          if(rows.isEmpty()) {
+            finish(connection, false, Future.succeededFuture(false), handler);
+            return;
+          }
+
+          String message = invalidMessage.apply(
+            new JsonObject(rows.get(0).getString("record")));
+
+          if(message != null) {
+            finish(connection, false,
+              Future.failedFuture(new InvalidRecordException(message)), handler);
+          }
+          else {
+            finish(connection, true, Future.succeededFuture(true), handler);
+          }
+        });
+      }));
+  }
+
+  private static void finish(
+    SQLConnection connection,
+    boolean commit,
+    AsyncResult<Boolean> outcome,
+    Handler<AsyncResult<Boolean>> handler) {
+
+    Handler<AsyncResult<Void>> onEnded = ended -> {
+      connection.close();
+
+      if(ended.failed() && outcome.succeeded()) {
+        handler.handle(Future.failedFuture(ended.cause()));
+      }
+      else {
+        handler.handle(outcome);
+      }
+    };
+
+    if(commit) {
+      connection.commit(onEnded);
+    }
+    else {
+      connection.rollback(onEnded);
+    }
+  }
+
+  /**
+   * The patched record is not valid, so the patch was not applied
+   */
+  public static class InvalidRecordException extends RuntimeException {
+    public InvalidRecordException(String message) {
+      super(message);
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package org.folio.rest.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Fetches the records with any of a list of IDs (or which refer to any of a
+ * list of other records) in a single statement, instead of a query per ID
+ */
+public class MultiGet {
+
+  public static final int MAXIMUM_IDS = 1000;
+
+  private MultiGet() { }
+
+  /**
+   * @param commaSeparated list of IDs, may be null
+   * @return IDs in the list, empty when there are none
+   */
+  public static List<String> parse(String commaSeparated) {
+    if(commaSeparated == null) {
+      return new ArrayList<>();
+    }
+
+    return Arrays.stream(commaSeparated.split(","))
+      .map(String::trim)
+      .filter(id -> !id.isEmpty())
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * @param ids
+   * @return why the IDs cannot be used, null when they can
+   */
+  public static String invalidIdsMessage(Collection<String> ids) {
+    if(ids.size() > MAXIMUM_IDS) {
+      return String.format("No more than %s IDs can be requested at once",
+        MAXIMUM_IDS);
+    }
+
+    return ids.stream()
+      .filter(id -> !StorageSql.isUUID(id))
+      .findFirst()
+      .map(id -> "Invalid ID: " + id)
+      .orElse(null);
+  }
+
+  /**
+   * Fetches records by ID
+   *
+   * @param vertx
+   * @param tenantId
+   * @param table
+   * @param ids must be UUIDs
+   * @param whereClause additional criteria, e.g. generated from CQL, may be null
+   * (any sort is ignored)
+   * @param handler
+   */
+  public static void byIds(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    Collection<String> ids,
+    String whereClause,
+    Handler<AsyncResult<List<JsonObject>>> handler) {
+
+    fetch(vertx, tenantId, table, "_id = ANY(?::uuid[])", ids, whereClause,
+      handler);
+  }
+
+  /**
+   * Fetches records which refer to other records, via a property which
+   * has an index (either on a column holding it or an expression index)
+   *
+   * @param vertx
+   * @param tenantId
+   * @param table
+   * @param property name of the property holding the ID of the referenced record
+   * @param ids IDs of referenced records, must be UUIDs
+   * @param whereClause additional criteria, e.g. generated from CQL, may be null
+   * (any sort is ignored)
+   * @param handler
+   */
+  public static void byReference(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String property,
+    Collection<String> ids,
+    String whereClause,
+    Handler<AsyncResult<List<JsonObject>>> handler) {
+
+    String column = ScalarColumns.column(table, property);
+
+    fetch(vertx, tenantId, table,
+      column != null
+        ? String.format("%s = ANY(?::text[])", column)
+        : String.format("jsonb->>'%s' = ANY(?::text[])", property),
+      ids, whereClause, handler);
+  }
+
+  private static void fetch(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String idCondition,
+    Collection<String> ids,
+    String whereClause,
+    Handler<AsyncResult<List<JsonObject>>> handler) {
+
+    //records are always in the order of their IDs, any sort is ignored
+    String criteria = StorageSql.withoutOrderBy(whereClause);
+
+    String sql = String.format(
+      "SELECT jsonb::text AS record FROM %s WHERE %s%s ORDER BY _id",
+      StorageSql.tableName(tenantId, table), idCondition,
+      criteria == null || criteria.isEmpty()
+        ? ""
+        : String.format(" AND (%s)", criteria));
+
+    //IDs are UUIDs, so need no quoting within the array literal
+    JsonArray parameters = new JsonArray()
+      .add("{" + String.join(",", ids) + "}");
+
+    //the criteria have their values inline, so would be prepared once per value
+    PreparedStatementCache.query(vertx, tenantId, sql, parameters, reply -> {
+      if(reply.failed()) {
+        handler.handle(Future.failedFuture(reply.cause()));
+        return;
+      }
+
+      handler.handle(Future.succeededFuture(reply.result().getRows().stream()
+        .map(row -> new JsonObject(row.getString("record")))
+        .collect(Collectors.toList())));
+    });
+  }
+}
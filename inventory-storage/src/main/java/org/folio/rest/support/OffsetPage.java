@@ -0,0 +1,112 @@
+package org.folio.rest.support;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A page of records fetched using limit and offset, optionally counting every
+ * matching record at the same time
+ *
+ * The statement is run via the prepared statement cache, so requests which
+ * differ only by the values in their criteria share a query plan
+ */
+public class OffsetPage {
+
+  private final List<JsonObject> records;
+  private final Integer totalRecords;
+
+  private OffsetPage(List<JsonObject> records, Integer totalRecords) {
+    this.records = records;
+    this.totalRecords = totalRecords;
+  }
+
+  public List<JsonObject> getRecords() {
+    return records;
+  }
+
+  public <T> List<T> getRecords(Class<T> type) {
+    return records.stream()
+      .map(record -> Json.decodeValue(record.encode(), type))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * @return number of matching records, null when they were not counted
+   * (or could not be, because the offset is beyond the last record)
+   */
+  public Integer getTotalRecords() {
+    return totalRecords;
+  }
+
+  /**
+   * @param vertx
+   * @param tenantId
+   * @param table
+   * @param whereClause criteria, e.g. generated from CQL, may be null
+   * @param offset number of matching records to skip
+   * @param limit maximum number of records in the page
+   * @param count whether to count every matching record
+   * @param handler
+   */
+  public static void fetch(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String whereClause,
+    int offset,
+    int limit,
+    boolean count,
+    Handler<AsyncResult<OffsetPage>> handler) {
+
+    String sql = String.format(
+      "SELECT _id::text AS id, jsonb::text AS record%s FROM %s%s LIMIT %s OFFSET %s",
+      count ? ", count(*) OVER() AS count" : "",
+      StorageSql.tableName(tenantId, table),
+      whereClause == null || whereClause.trim().isEmpty()
+        ? ""
+        : " WHERE " + whereClause,
+      limit, offset);
+
+    PreparedStatementCache.query(vertx, tenantId, sql, reply -> {
+      if(reply.failed()) {
+        handler.handle(Future.failedFuture(reply.cause()));
+        return;
+      }
+
+      List<JsonObject> rows = reply.result().getRows();
+
+      Integer total = null;
+
+      if(count && !rows.isEmpty()) {
+        total = rows.get(0).getLong("count").intValue();
+      }
+      else if(count && offset == 0) {
+        total = 0;
+      }
+
+      handler.handle(Future.succeededFuture(new OffsetPage(
+        rows.stream()
+          .map(OffsetPage::recordFrom)
+          .collect(Collectors.toList()),
+        total)));
+    });
+  }
+
+  private static JsonObject recordFrom(JsonObject row) {
+    JsonObject record = new JsonObject(row.getString("record"));
+
+    //some records (e.g. reference data) are not always stored with their ID
+    if(!record.containsKey("id")) {
+      record.put("id", row.getString("id"));
+    }
+
+    return record;
+  }
+}
@@ -0,0 +1,144 @@
+package org.folio.rest.support;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.sql.ResultSet;
+
+/**
+ * Runs statements generated with their values inline (e.g. from CQL) as
+ * prepared statements, so that Postgres parses and plans each shape of
+ * statement once per connection, rather than once per request
+ *
+ * The database driver keeps the statements it has prepared for each
+ * connection (by statement text) and never releases them. So that only
+ * statements which are repeated get prepared, the most recently used shapes
+ * are remembered (up to a limit), and a statement is only prepared when its
+ * shape has been seen before, otherwise it is run as a one-off statement.
+ */
+public class PreparedStatementCache {
+
+  private static final Logger log = LoggerFactory.getLogger(PreparedStatementCache.class);
+
+  public static final int MAXIMUM_SHAPES = 500;
+
+  private static final long REPORT_EVERY = 10000;
+
+  private static final Map<String, Boolean> shapes =
+    new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+        return size() > MAXIMUM_SHAPES;
+      }
+    };
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  private PreparedStatementCache() { }
+
+  /**
+   * @param vertx
+   * @param tenantId
+   * @param sql statement with values inline, must not contain placeholders
+   * @param handler
+   */
+  public static void query(
+    Vertx vertx,
+    String tenantId,
+    String sql,
+    Handler<AsyncResult<ResultSet>> handler) {
+
+    QueryShape shape = QueryShape.of(sql);
+
+    if(shape != null && seenBefore(shape.getSql())) {
+      StorageSql.query(vertx, tenantId, shape.getSql(), shape.getParameters(),
+        handler);
+    }
+    else {
+      StorageSql.query(vertx, tenantId, sql, handler);
+    }
+  }
+
+  /**
+   * For statements which combine placeholders with criteria generated with
+   * their values inline, the parameters are put inline too, so that the whole
+   * statement is shaped (rather than prepared as it is, once per value)
+   *
+   * @param vertx
+   * @param tenantId
+   * @param sql statement with a ? placeholder for each parameter
+   * @param parameters strings, numbers, booleans or nulls
+   * @param handler
+   */
+  public static void query(
+    Vertx vertx,
+    String tenantId,
+    String sql,
+    JsonArray parameters,
+    Handler<AsyncResult<ResultSet>> handler) {
+
+    String inlined;
+
+    try {
+      inlined = QueryShape.inline(sql, parameters);
+    }
+    catch(IllegalArgumentException e) {
+      handler.handle(Future.failedFuture(e));
+      return;
+    }
+
+    query(vertx, tenantId, inlined, handler);
+  }
+
+  public static long hits() {
+    return hits.get();
+  }
+
+  public static long misses() {
+    return misses.get();
+  }
+
+  /**
+   * @return proportion of statements run as prepared statements, between 0 and 1
+   */
+  public static double hitRate() {
+    long hitCount = hits.get();
+    long total = hitCount + misses.get();
+
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  private static boolean seenBefore(String shape) {
+    boolean seen;
+    int size;
+
+    synchronized(shapes) {
+      seen = shapes.put(shape, Boolean.TRUE) != null;
+      size = shapes.size();
+    }
+
+    if(seen) {
+      hits.incrementAndGet();
+    }
+    else {
+      misses.incrementAndGet();
+    }
+
+    if((hits.get() + misses.get()) % REPORT_EVERY == 0) {
+      log.info(String.format(
+        "Prepared statement cache: %s shapes, hit rate %.1f%%",
+        size, hitRate() * 100));
+    }
+
+    return seen;
+  }
+}
@@ -0,0 +1,233 @@
+package org.folio.rest.support;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.vertx.core.json.JsonArray;
+
+/**
+ * The shape of a statement generated with its values inline (e.g. from CQL),
+ * with the values replaced by parameters, so that statements which differ
+ * only by value (e.g. barcode==123 and barcode==456) have the same text
+ *
+ * Only values are replaced, JSON property names (which follow -> or ->>) are
+ * kept so that statements can still use expression indexes
+ */
+public class QueryShape {
+
+  private static final Pattern PAGING = Pattern.compile(
+    "\\b(LIMIT|OFFSET)\\s+(\\d+)\\b", Pattern.CASE_INSENSITIVE);
+
+  private final String sql;
+  private final JsonArray parameters;
+
+  private QueryShape(String sql, JsonArray parameters) {
+    this.sql = sql;
+    this.parameters = parameters;
+  }
+
+  /**
+   * @return statement with a ? placeholder for each value
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * @return values taken from the statement, in placeholder order
+   */
+  public JsonArray getParameters() {
+    return parameters;
+  }
+
+  /**
+   * @param sql statement with values inline
+   * @return shape of the statement, null when it cannot be determined
+   * (e.g. the statement already contains placeholders)
+   */
+  public static QueryShape of(String sql) {
+    StringBuilder shape = new StringBuilder();
+    JsonArray parameters = new JsonArray();
+
+    int position = 0;
+
+    while(position < sql.length()) {
+      int quote = nextQuote(sql, position);
+
+      if(!appendOutsideLiterals(sql.substring(position, quote), shape, parameters)) {
+        return null;
+      }
+
+      if(quote == sql.length()) {
+        break;
+      }
+
+      char quoteCharacter = sql.charAt(quote);
+      int end = endOfQuoted(sql, quote, quoteCharacter);
+
+      if(end < 0) {
+        return null;
+      }
+
+      String quoted = sql.substring(quote, end + 1);
+
+      if(quoteCharacter == '"' || isPropertyName(shape) || isEscapeString(shape)) {
+        shape.append(quoted);
+      }
+      else {
+        shape.append('?');
+        parameters.add(quoted.substring(1, quoted.length() - 1).replace("''", "'"));
+      }
+
+      position = end + 1;
+    }
+
+    return new QueryShape(shape.toString(), parameters);
+  }
+
+  /**
+   * Puts the values of parameters into a statement, so that a statement
+   * which combines placeholders with criteria generated with their values
+   * inline (e.g. from CQL) can be shaped as a whole
+   *
+   * @param sql statement with a ? placeholder (outside of literals) for each value
+   * @param parameters strings, numbers, booleans or nulls
+   * @return statement with values inline
+   * @throws IllegalArgumentException when the number of placeholders and
+   * parameters differ, or a parameter is of another type
+   */
+  public static String inline(String sql, JsonArray parameters) {
+    StringBuilder inlined = new StringBuilder();
+
+    int parameter = 0;
+    int index = 0;
+
+    while(index < sql.length()) {
+      char c = sql.charAt(index);
+
+      if(c == '\'' || c == '"') {
+        int end = endOfQuoted(sql, index, c);
+
+        if(end < 0) {
+          throw new IllegalArgumentException("Unterminated literal in: " + sql);
+        }
+
+        inlined.append(sql, index, end + 1);
+        index = end + 1;
+        continue;
+      }
+
+      if(c == '?') {
+        if(parameter >= parameters.size()) {
+          throw new IllegalArgumentException("Too few parameters for: " + sql);
+        }
+
+        inlined.append(literal(parameters.getValue(parameter++)));
+      }
+      else {
+        inlined.append(c);
+      }
+
+      index++;
+    }
+
+    if(parameter != parameters.size()) {
+      throw new IllegalArgumentException("Too many parameters for: " + sql);
+    }
+
+    return inlined.toString();
+  }
+
+  private static String literal(Object value) {
+    if(value == null) {
+      return "NULL";
+    }
+
+    if(value instanceof Number || value instanceof Boolean) {
+      return value.toString();
+    }
+
+    if(value instanceof String) {
+      return "'" + ((String) value).replace("'", "''") + "'";
+    }
+
+    throw new IllegalArgumentException("Cannot put inline: " + value);
+  }
+
+  private static boolean appendOutsideLiterals(
+    String text,
+    StringBuilder shape,
+    JsonArray parameters) {
+
+    //a ? is either a placeholder or a jsonb operator, neither can be reordered safely
+    if(text.indexOf('?') >= 0) {
+      return false;
+    }
+
+    Matcher matcher = PAGING.matcher(text);
+    int position = 0;
+
+    while(matcher.find()) {
+      shape.append(text, position, matcher.start(2)).append('?');
+      parameters.add(Integer.parseInt(matcher.group(2)));
+      position = matcher.end(2);
+    }
+
+    shape.append(text.substring(position));
+
+    return true;
+  }
+
+  private static int nextQuote(String sql, int from) {
+    for(int index = from; index < sql.length(); index++) {
+      char c = sql.charAt(index);
+
+      if(c == '\'' || c == '"') {
+        return index;
+      }
+    }
+
+    return sql.length();
+  }
+
+  private static int endOfQuoted(String sql, int start, char quoteCharacter) {
+    int index = start + 1;
+
+    while(index < sql.length()) {
+      if(sql.charAt(index) == quoteCharacter) {
+        //a doubled quote is an escaped quote, not the end
+        if(index + 1 < sql.length() && sql.charAt(index + 1) == quoteCharacter) {
+          index += 2;
+          continue;
+        }
+
+        return index;
+      }
+
+      index++;
+    }
+
+    return -1;
+  }
+
+  private static boolean isPropertyName(StringBuilder precedingSql) {
+    int end = precedingSql.length();
+
+    while(end > 0 && Character.isWhitespace(precedingSql.charAt(end - 1))) {
+      end--;
+    }
+
+    String preceding = precedingSql.substring(Math.max(0, end - 3), end);
+
+    return preceding.endsWith("->") || preceding.endsWith("#>")
+      || preceding.endsWith("->>") || preceding.endsWith("#>>");
+  }
+
+  private static boolean isEscapeString(StringBuilder precedingSql) {
+    int length = precedingSql.length();
+
+    return length > 0
+      && Character.toUpperCase(precedingSql.charAt(length - 1)) == 'E'
+      && (length == 1 || !Character.isLetterOrDigit(precedingSql.charAt(length - 2)));
+  }
+}
@@ -0,0 +1,135 @@
+package org.folio.rest.support;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Properties of records which are also kept in columns of their own
+ * (maintained by a trigger, see template_create_tenant.sql), so that criteria
+ * on them compare a plain column, rather than extracting the property
+ * from the jsonb of every row
+ *
+ * The columns hold the same text as the property, so any comparison
+ * generated from CQL behaves the same with either.
+ */
+public class ScalarColumns {
+
+  private static final Map<String, Map<String, String>> columns = new HashMap<>();
+  private static final Map<String, Pattern> extractions = new HashMap<>();
+
+  static {
+    Map<String, String> item = new LinkedHashMap<>();
+
+    item.put("barcode", "barcode");
+    item.put("instanceId", "instanceid");
+    item.put("status.name", "status");
+    item.put("location.name", "location");
+
+    register("item", item);
+  }
+
+  private ScalarColumns() { }
+
+  /**
+   * @param table
+   * @param property name of the property, nested properties separated by .
+   * @return column holding the property, null when there is none
+   */
+  public static String column(String table, String property) {
+    return columns.getOrDefault(table, Collections.emptyMap()).get(property);
+  }
+
+  /**
+   * Replaces the extraction of properties from the jsonb column
+   * (e.g. item.jsonb->>'barcode') with the columns holding them
+   * (e.g. item.barcode), values within string literals are left alone
+   *
+   * @param table records are stored in the jsonb column of this table
+   * @param whereClause criteria, e.g. generated from CQL, may be null
+   * @return criteria using columns where possible
+   */
+  public static String useColumns(String table, String whereClause) {
+    Pattern extraction = extractions.get(table);
+
+    if(whereClause == null || extraction == null) {
+      return whereClause;
+    }
+
+    Map<String, String> byProperty = columns.get(table);
+
+    StringBuilder rewritten = new StringBuilder();
+    Matcher matcher = extraction.matcher(whereClause);
+    boolean inLiteral = false;
+    int position = 0;
+
+    while(position < whereClause.length()) {
+      char current = whereClause.charAt(position);
+
+      if(!inLiteral && startsIdentifier(whereClause, position)
+        && matcher.region(position, whereClause.length()).lookingAt()) {
+
+        rewritten.append(table).append(".")
+          .append(byProperty.get(propertyOf(matcher)));
+
+        position = matcher.end();
+        continue;
+      }
+
+      //a quote within a literal is doubled, so toggles twice
+      if(current == '\'') {
+        inLiteral = !inLiteral;
+      }
+
+      rewritten.append(current);
+      position++;
+    }
+
+    return rewritten.toString();
+  }
+
+  private static void register(String table, Map<String, String> properties) {
+    columns.put(table, properties);
+
+    //e.g. item.jsonb->'status'->>'name'
+    String alternatives = properties.keySet().stream()
+      .map(ScalarColumns::extractionOf)
+      .collect(Collectors.joining("|"));
+
+    extractions.put(table, Pattern.compile(String.format(
+      "%s\\.jsonb(%s)", Pattern.quote(table), alternatives)));
+  }
+
+  private static String extractionOf(String property) {
+    String[] path = property.split("\\.");
+
+    StringBuilder extraction = new StringBuilder();
+
+    for(int index = 0; index < path.length; index++) {
+      extraction.append("\\s*")
+        .append(index == path.length - 1 ? "->>" : "->")
+        .append("\\s*'").append(Pattern.quote(path[index])).append("'");
+    }
+
+    return extraction.toString();
+  }
+
+  private static String propertyOf(Matcher matcher) {
+    return matcher.group(1)
+      .replaceAll("\\s", "")
+      .replace("->>", ".")
+      .replace("->", ".")
+      .replace("'", "")
+      .substring(1);
+  }
+
+  private static boolean startsIdentifier(String sql, int position) {
+    return position == 0
+      || !Character.isLetterOrDigit(sql.charAt(position - 1))
+      && sql.charAt(position - 1) != '_';
+  }
+}
@@ -0,0 +1,178 @@
+package org.folio.rest.support;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import org.folio.rest.persist.PostgresClient;
+import org.folio.rest.tools.utils.TenantTool;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.ext.sql.ResultSet;
+import io.vertx.ext.sql.SQLConnection;
+import io.vertx.ext.sql.UpdateResult;
+
+/**
+ * Runs parameterised statements against a tenant's inventory storage schema,
+ * for the operations the generic PostgresClient methods cannot express
+ */
+public class StorageSql {
+
+  private static final String SCHEMA_SUFFIX = "inventory_storage";
+
+  private StorageSql() { }
+
+  public static String tableName(String tenantId, String table) {
+    return String.format("%s_%s.%s", TenantTool.calculateTenantId(tenantId),
+      SCHEMA_SUFFIX, table);
+  }
+
+  /**
+   * @param count number of parameters
+   * @return comma separated list of parameter placeholders, e.g. "?, ?, ?"
+   */
+  public static String placeholders(int count) {
+    return String.join(", ", Collections.nCopies(count, "?"));
+  }
+
+  public static boolean isUUID(String id) {
+    try {
+      UUID.fromString(id);
+      return true;
+    }
+    catch(IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Criteria generated from CQL end with an ORDER BY clause when the query is
+   * sorted, which cannot be used within other criteria or statements
+   * (e.g. with their own order, or which aggregate)
+   *
+   * @param whereClause criteria, e.g. generated from CQL, may be null
+   * @return criteria without any ORDER BY clause
+   */
+  public static String withoutOrderBy(String whereClause) {
+    if(whereClause == null) {
+      return null;
+    }
+
+    boolean inLiteral = false;
+    int depth = 0;
+
+    for(int index = 0; index < whereClause.length(); index++) {
+      char current = whereClause.charAt(index);
+
+      //a quote within a literal is doubled, so toggles twice
+      if(current == '\'') {
+        inLiteral = !inLiteral;
+      }
+      else if(inLiteral) {
+        continue;
+      }
+      else if(current == '(') {
+        depth++;
+      }
+      else if(current == ')') {
+        depth--;
+      }
+      else if(depth == 0
+        && (index == 0 || Character.isWhitespace(whereClause.charAt(index - 1)))
+        && whereClause.regionMatches(true, index, "ORDER BY", 0, 8)) {
+
+        return whereClause.substring(0, index).trim();
+      }
+    }
+
+    return whereClause;
+  }
+
+  /**
+   * Runs a statement without parameters as a one-off statement,
+   * which is not prepared
+   */
+  public static void query(
+    Vertx vertx,
+    String tenantId,
+    String sql,
+    Handler<AsyncResult<ResultSet>> handler) {
+
+    withConnection(vertx, tenantId, handler, connection ->
+      connection.query(sql, result -> {
+        connection.close();
+        handler.handle(result);
+      }));
+  }
+
+  public static void query(
+    Vertx vertx,
+    String tenantId,
+    String sql,
+    JsonArray parameters,
+    Handler<AsyncResult<ResultSet>> handler) {
+
+    withConnection(vertx, tenantId, handler, connection ->
+      connection.queryWithParams(sql, parameters, result -> {
+        connection.close();
+        handler.handle(result);
+      }));
+  }
+
+  /**
+   * Runs a statement without parameters as a one-off statement,
+   * which is not prepared
+   */
+  public static void update(
+    Vertx vertx,
+    String tenantId,
+    String sql,
+    Handler<AsyncResult<UpdateResult>> handler) {
+
+    withConnection(vertx, tenantId, handler, connection ->
+      connection.update(sql, result -> {
+        connection.close();
+        handler.handle(result);
+      }));
+  }
+
+  public static void update(
+    Vertx vertx,
+    String tenantId,
+    String sql,
+    JsonArray parameters,
+    Handler<AsyncResult<UpdateResult>> handler) {
+
+    withConnection(vertx, tenantId, handler, connection ->
+      connection.updateWithParams(sql, parameters, result -> {
+        connection.close();
+        handler.handle(result);
+      }));
+  }
+
+  static <T> void withConnection(
+    Vertx vertx,
+    String tenantId,
+    Handler<AsyncResult<T>> handler,
+    Handler<SQLConnection> action) {
+
+    try {
+      PostgresClient.getInstance(vertx, TenantTool.calculateTenantId(tenantId))
+        .getClient()
+        .getConnection(connection -> {
+          if(connection.succeeded()) {
+            action.handle(connection.result());
+          }
+          else {
+            handler.handle(Future.failedFuture(connection.cause()));
+          }
+        });
+    }
+    catch(Exception e) {
+      handler.handle(Future.failedFuture(e));
+    }
+  }
+}
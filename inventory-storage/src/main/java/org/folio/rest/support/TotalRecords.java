@@ -0,0 +1,240 @@
+package org.folio.rest.support;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.folio.rest.tools.utils.TenantTool;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Determines the totalRecords for a collection request, in the way requested
+ * by the client:
+ *
+ * none - not provided
+ * estimate - from the planner statistics, without reading any records
+ * exact - counted, the count for a collection without a query is remembered
+ * until the collection is changed
+ *
+ * Usage is to first fetch the page (counting only when needsCount() is true),
+ * then resolve the total using the count from the page (if any)
+ */
+public class TotalRecords {
+
+  public static final String NONE = "none";
+  public static final String ESTIMATE = "estimate";
+  public static final String EXACT = "exact";
+
+  private static final Logger log = LoggerFactory.getLogger(TotalRecords.class);
+
+  private static final long COUNT_LIFETIME_MILLIS = 60 * 1000;
+
+  private static final ConcurrentMap<String, CachedCount> counts =
+    new ConcurrentHashMap<>();
+
+  private static final ConcurrentMap<String, Long> generations =
+    new ConcurrentHashMap<>();
+
+  private final Vertx vertx;
+  private final String tenantId;
+  private final String table;
+  private final String query;
+  private final String mode;
+  private final Integer cachedCount;
+  private final long generation;
+
+  public TotalRecords(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String query,
+    String mode) {
+
+    this.vertx = vertx;
+    this.tenantId = TenantTool.calculateTenantId(tenantId);
+    this.table = table;
+    this.query = query;
+    this.mode = mode == null ? EXACT : mode;
+
+    String key = key(this.tenantId, table);
+
+    this.generation = generations.getOrDefault(key, 0L);
+    this.cachedCount = EXACT.equals(this.mode) && isUnfiltered()
+      ? cachedCount(key)
+      : null;
+  }
+
+  public static boolean isValidMode(String mode) {
+    return mode == null
+      || NONE.equals(mode)
+      || ESTIMATE.equals(mode)
+      || EXACT.equals(mode);
+  }
+
+  /**
+   * @return whether the records should be counted when fetching the page
+   */
+  public boolean needsCount() {
+    return EXACT.equals(mode) && cachedCount == null;
+  }
+
+  /**
+   * Determines the total
+   *
+   * @param countFromPage count made when fetching the page, if needsCount()
+   * @param handler receives the total, null when it is not to be provided
+   */
+  public void resolve(Integer countFromPage, Handler<AsyncResult<Integer>> handler) {
+    switch(mode) {
+      case NONE:
+        handler.handle(Future.succeededFuture(null));
+        break;
+
+      case ESTIMATE:
+        estimate(handler);
+        break;
+
+      default:
+        if(cachedCount != null) {
+          handler.handle(Future.succeededFuture(cachedCount));
+        }
+        else {
+          if(isUnfiltered() && countFromPage != null) {
+            remember(countFromPage);
+          }
+
+          handler.handle(Future.succeededFuture(countFromPage));
+        }
+    }
+  }
+
+  /**
+   * Forgets the remembered count for a table,
+   * should be used whenever records are created or removed
+   *
+   * @param tenantId
+   * @param table
+   */
+  public static void invalidate(String tenantId, String table) {
+    String key = key(TenantTool.calculateTenantId(tenantId), table);
+
+    //a count already in progress may not include the change, so must not be kept
+    generations.merge(key, 1L, Long::sum);
+    counts.remove(key);
+  }
+
+  private void estimate(Handler<AsyncResult<Integer>> handler) {
+    Handler<AsyncResult<Integer>> withoutFailure = result -> {
+      if(result.failed()) {
+        log.warn("Unable to estimate total records for " + table, result.cause());
+        handler.handle(Future.succeededFuture(null));
+      }
+      else {
+        handler.handle(result);
+      }
+    };
+
+    if(isUnfiltered()) {
+      estimateFromStatistics(withoutFailure);
+    }
+    else {
+      estimateFromPlan(withoutFailure);
+    }
+  }
+
+  private void estimateFromStatistics(Handler<AsyncResult<Integer>> handler) {
+    //a partitioned table has no statistics of its own, only its partitions do
+    String sql = "SELECT sum(greatest(reltuples, 0))::bigint AS estimate FROM pg_class"
+      + " WHERE oid = ?::regclass"
+      + " OR oid IN (SELECT inhrelid FROM pg_inherits WHERE inhparent = ?::regclass)";
+
+    JsonArray parameters = new JsonArray()
+      .add(StorageSql.tableName(tenantId, table))
+      .add(StorageSql.tableName(tenantId, table));
+
+    StorageSql.query(vertx, tenantId, sql, parameters, reply -> {
+      if(reply.failed()) {
+        handler.handle(Future.failedFuture(reply.cause()));
+        return;
+      }
+
+      Long estimate = reply.result().getRows().get(0).getLong("estimate");
+
+      //never analysed tables have a negative (or zero) estimate
+      handler.handle(Future.succeededFuture(
+        (int) Math.max(0, estimate == null ? 0 : estimate)));
+    });
+  }
+
+  private void estimateFromPlan(Handler<AsyncResult<Integer>> handler) {
+    String sql;
+
+    try {
+      sql = String.format("EXPLAIN (FORMAT JSON) SELECT jsonb FROM %s WHERE %s",
+        StorageSql.tableName(tenantId, table),
+        CqlTranslationCache.whereClause(table, query));
+    }
+    catch(Exception e) {
+      handler.handle(Future.failedFuture(e));
+      return;
+    }
+
+    //run as a one-off statement, as the criteria have their values inline
+    StorageSql.query(vertx, tenantId, sql, reply -> {
+      if(reply.failed()) {
+        handler.handle(Future.failedFuture(reply.cause()));
+        return;
+      }
+
+      Object plan = reply.result().getResults().get(0).getValue(0);
+
+      JsonArray plans = plan instanceof JsonArray
+        ? (JsonArray) plan
+        : new JsonArray(plan.toString());
+
+      handler.handle(Future.succeededFuture(plans.getJsonObject(0)
+        .getJsonObject("Plan").getInteger("Plan Rows")));
+    });
+  }
+
+  private boolean isUnfiltered() {
+    return query == null || query.trim().isEmpty();
+  }
+
+  private void remember(Integer count) {
+    String key = key(tenantId, table);
+
+    if(generations.getOrDefault(key, 0L) == generation) {
+      counts.put(key, new CachedCount(count,
+        System.currentTimeMillis() + COUNT_LIFETIME_MILLIS));
+    }
+  }
+
+  private static Integer cachedCount(String key) {
+    CachedCount cached = counts.get(key);
+
+    return cached != null && cached.expiry > System.currentTimeMillis()
+      ? cached.count
+      : null;
+  }
+
+  private static String key(String tenantId, String table) {
+    return tenantId + "." + table;
+  }
+
+  private static class CachedCount {
+    private final Integer count;
+    private final long expiry;
+
+    private CachedCount(Integer count, long expiry) {
+      this.count = count;
+      this.expiry = expiry;
+    }
+  }
+}
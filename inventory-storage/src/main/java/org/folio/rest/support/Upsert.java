@@ -0,0 +1,183 @@
+package org.folio.rest.support;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Creates or replaces a record using a single INSERT ... ON CONFLICT statement,
+ * so that concurrent requests for the same ID cannot both try to create it,
+ * and only one round trip to the database is needed
+ *
+ * A record which is replaced with an identical record is not written at all
+ * (the comparison is made in the same statement), so that repeatedly
+ * replacing unchanged records does not rewrite rows, indexes or WAL.
+ */
+public class Upsert {
+
+  private static final Logger log = LoggerFactory.getLogger(Upsert.class);
+
+  private static final long REPORT_EVERY = 10000;
+
+  private static final AtomicLong unchanged = new AtomicLong();
+
+  public enum Outcome {
+    CREATED,
+    REPLACED,
+    /** the record already exists and is identical, nothing was written */
+    UNCHANGED,
+    /** the record does not exist or is not one of the expected versions, nothing changed */
+    VERSION_NOT_MATCHED
+  }
+
+  private Upsert() { }
+
+  /**
+   * @return number of replacements skipped because the record was unchanged
+   */
+  public static long unchanged() {
+    return unchanged.get();
+  }
+
+  /**
+   * Creates or replaces a record
+   *
+   * @param vertx
+   * @param tenantId
+   * @param table
+   * @param id must be a UUID
+   * @param record
+   * @param handler
+   */
+  public static void upsert(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String id,
+    Object record,
+    Handler<AsyncResult<Outcome>> handler) {
+
+    JsonArray parameters = new JsonArray()
+      .add(id)
+      .add(Json.encode(record));
+
+    //xmax is only zero for a row which has just been inserted
+    //an identical existing row is not updated, so no row is returned
+    String sql = String.format(
+      "INSERT INTO %s AS existing (_id, jsonb) VALUES (?::uuid, ?::jsonb)"
+        + " ON CONFLICT (_id) DO UPDATE SET jsonb = EXCLUDED.jsonb"
+        + " WHERE existing.jsonb IS DISTINCT FROM EXCLUDED.jsonb"
+        + " RETURNING (xmax = 0) AS created",
+      StorageSql.tableName(tenantId, table));
+
+    StorageSql.query(vertx, tenantId, sql, parameters, reply -> {
+      if(reply.failed()) {
+        handler.handle(Future.failedFuture(reply.cause()));
+        return;
+      }
+
+      List<JsonObject> rows = reply.result().getRows();
+
+      if(rows.isEmpty()) {
+        handler.handle(Future.succeededFuture(skipped(table)));
+      }
+      else if(Boolean.TRUE.equals(rows.get(0).getBoolean("created"))) {
+        handler.handle(Future.succeededFuture(Outcome.CREATED));
+      }
+      else {
+        handler.handle(Future.succeededFuture(Outcome.REPLACED));
+      }
+    });
+  }
+
+  /**
+   * Replaces a record only when it currently has one of the expected versions,
+   * never creates a record
+   *
+   * @param vertx
+   * @param tenantId
+   * @param table
+   * @param id must be a UUID
+   * @param record
+   * @param versions expected versions, when empty any version will do
+   * @param handler
+   */
+  public static void replace(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String id,
+    Object record,
+    List<Long> versions,
+    Handler<AsyncResult<Outcome>> handler) {
+
+    String json = Json.encode(record);
+
+    JsonArray parameters = new JsonArray()
+      .add(id);
+
+    String versionCondition = "";
+
+    if(!versions.isEmpty()) {
+      versionCondition = String.format(" AND version IN (%s)",
+        StorageSql.placeholders(versions.size()));
+
+      versions.forEach(parameters::add);
+    }
+
+    parameters
+      .add(json)
+      .add(json);
+
+    //the matching row is found (and locked) first, so that an unchanged
+    //record can be told apart from one which does not match
+    String sql = String.format(
+      "WITH target AS (SELECT _id, jsonb FROM %1$s WHERE _id = ?::uuid%2$s FOR UPDATE),"
+        + " replaced AS (UPDATE %1$s AS existing SET jsonb = ?::jsonb FROM target"
+        + " WHERE existing._id = target._id AND target.jsonb IS DISTINCT FROM ?::jsonb"
+        + " RETURNING existing._id)"
+        + " SELECT (SELECT count(*) FROM target) AS matched,"
+        + " (SELECT count(*) FROM replaced) AS replaced",
+      StorageSql.tableName(tenantId, table), versionCondition);
+
+    StorageSql.query(vertx, tenantId, sql, parameters, reply -> {
+      if(reply.failed()) {
+        handler.handle(Future.failedFuture(reply.cause()));
+        return;
+      }
+
+      JsonObject counts = reply.result().getRows().get(0);
+
+      if(counts.getLong("matched") == 0) {
+        handler.handle(Future.succeededFuture(Outcome.VERSION_NOT_MATCHED));
+      }
+      else if(counts.getLong("replaced") == 0) {
+        handler.handle(Future.succeededFuture(skipped(table)));
+      }
+      else {
+        handler.handle(Future.succeededFuture(Outcome.REPLACED));
+      }
+    });
+  }
+
+  private static Outcome skipped(String table) {
+    long count = unchanged.incrementAndGet();
+
+    if(count % REPORT_EVERY == 0) {
+      log.info(String.format(
+        "%s replacements skipped as the record was unchanged (latest in %s)",
+        count, table));
+    }
+
+    return Outcome.UNCHANGED;
+  }
+}
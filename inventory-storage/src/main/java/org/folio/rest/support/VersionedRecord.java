@@ -0,0 +1,173 @@
+package org.folio.rest.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ws.rs.core.Response;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A record together with its version, which changes whenever the record is
+ * changed (maintained by a trigger), and is provided to clients as an ETag
+ * for making conditional requests
+ */
+public class VersionedRecord {
+
+  public static final String ETAG_HEADER = "ETag";
+
+  private static final String ANY = "*";
+  private static final String WEAK_PREFIX = "W/";
+
+  private final JsonObject record;
+  private final long version;
+
+  private VersionedRecord(JsonObject record, long version) {
+    this.record = record;
+    this.version = version;
+  }
+
+  public JsonObject getRecord() {
+    return record;
+  }
+
+  public <T> T getRecord(Class<T> type) {
+    return Json.decodeValue(record.encode(), type);
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public String getETag() {
+    return eTag(version);
+  }
+
+  /**
+   * @param response for this version of the record
+   * @return the response with this version as the ETag header
+   */
+  public Response withETag(Response response) {
+    return Response.fromResponse(response)
+      .header(ETAG_HEADER, getETag())
+      .build();
+  }
+
+  /**
+   * Whether this version of the record is one of those in an If-None-Match
+   * header, using weak comparison as intended for conditional GETs
+   *
+   * @param ifNoneMatch header value, may be null
+   */
+  public boolean isMatchedBy(String ifNoneMatch) {
+    if(ifNoneMatch == null) {
+      return false;
+    }
+
+    if(ANY.equals(ifNoneMatch.trim())) {
+      return true;
+    }
+
+    for(String tag : ifNoneMatch.split(",")) {
+      String trimmed = tag.trim();
+
+      if(trimmed.startsWith(WEAK_PREFIX)) {
+        trimmed = trimmed.substring(WEAK_PREFIX.length());
+      }
+
+      if(getETag().equals(trimmed)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  public static String eTag(long version) {
+    return "\"" + version + "\"";
+  }
+
+  /**
+   * Versions listed in an If-Match header, using strong comparison,
+   * so weak and unrecognised tags are left out
+   *
+   * @param ifMatch header value
+   * @return versions a record must have, empty when any version will do ("*")
+   */
+  public static List<Long> versionsFrom(String ifMatch) {
+    List<Long> versions = new ArrayList<>();
+
+    if(ANY.equals(ifMatch.trim())) {
+      return versions;
+    }
+
+    for(String tag : ifMatch.split(",")) {
+      String trimmed = tag.trim();
+
+      if(trimmed.length() > 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+        try {
+          versions.add(Long.parseLong(trimmed.substring(1, trimmed.length() - 1)));
+        }
+        catch(NumberFormatException e) {
+          //not a tag this module provided, so cannot match any version
+        }
+      }
+    }
+
+    return versions;
+  }
+
+  /**
+   * @param ifMatch header value
+   * @return whether the header could match a version of any record
+   */
+  public static boolean canMatch(String ifMatch) {
+    return ANY.equals(ifMatch.trim()) || !versionsFrom(ifMatch).isEmpty();
+  }
+
+  /**
+   * Fetches a record with its version
+   *
+   * @param vertx
+   * @param tenantId
+   * @param table
+   * @param id must be a UUID
+   * @param handler receives the record, null when it does not exist
+   */
+  public static void fetch(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String id,
+    Handler<AsyncResult<VersionedRecord>> handler) {
+
+    String sql = String.format(
+      "SELECT jsonb::text AS record, version FROM %s WHERE _id = ?::uuid",
+      StorageSql.tableName(tenantId, table));
+
+    StorageSql.query(vertx, tenantId, sql, new JsonArray().add(id), reply -> {
+      if(reply.failed()) {
+        handler.handle(Future.failedFuture(reply.cause()));
+        return;
+      }
+
+      List<JsonObject> rows = reply.result().getRows();
+
+      if(rows.isEmpty()) {
+        handler.handle(Future.succeededFuture(null));
+      }
+      else {
+        JsonObject row = rows.get(0);
+
+        handler.handle(Future.succeededFuture(new VersionedRecord(
+          new JsonObject(row.getString("record")), row.getLong("version"))));
+      }
+    });
+  }
+}
@@ -0,0 +1,252 @@
+package org.folio.rest.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Gathers the single records created within a short window (for the same
+ * tenant and table) and inserts them with a single multi-row INSERT,
+ * so that many requests share one transaction (and one commit)
+ *
+ * Each caller is still told the outcome for their own record. Records which
+ * are not inserted together (e.g. because they conflict with an existing
+ * row, or the statement fails because of one of them) are inserted again
+ * on their own, so that the caller gets the same outcome (and error)
+ * as inserting it by itself. The outcome is given on the context the
+ * record was created on, rather than that of whichever request (or timer)
+ * caused the batch to be inserted.
+ *
+ * Disabled unless a window is configured, using the system properties
+ * inventory-storage.coalesce.window.ms (e.g. 5) and
+ * inventory-storage.coalesce.maximum.batch (defaults to 100), a batch
+ * is inserted as soon as it is full, without waiting for the window to end.
+ */
+public class WriteCoalescer {
+
+  public static final String WINDOW_PROPERTY = "inventory-storage.coalesce.window.ms";
+  public static final String MAXIMUM_BATCH_PROPERTY = "inventory-storage.coalesce.maximum.batch";
+
+  private static final Logger log = LoggerFactory.getLogger(WriteCoalescer.class);
+
+  private static volatile long windowMillis = Long.getLong(WINDOW_PROPERTY, 0);
+  private static volatile int maximumBatch = Integer.getInteger(MAXIMUM_BATCH_PROPERTY, 100);
+
+  private static final Map<String, List<Pending>> pending = new HashMap<>();
+
+  private static final AtomicLong batches = new AtomicLong();
+  private static final AtomicLong records = new AtomicLong();
+
+  private WriteCoalescer() { }
+
+  public static boolean isEnabled() {
+    return windowMillis > 0;
+  }
+
+  /**
+   * Overrides the system properties, e.g. for tests
+   *
+   * @param window milliseconds to gather records for, 0 to disable
+   * @param maximum number of records inserted together
+   */
+  public static void configure(long window, int maximum) {
+    windowMillis = window;
+    maximumBatch = maximum;
+  }
+
+  /**
+   * @return number of statements used to insert gathered records
+   */
+  public static long batches() {
+    return batches.get();
+  }
+
+  /**
+   * @return number of records inserted by gathering them
+   */
+  public static long records() {
+    return records.get();
+  }
+
+  /**
+   * Creates a record, together with any others created at about the same time
+   *
+   * @param vertx
+   * @param tenantId
+   * @param table
+   * @param id must not be null
+   * @param entity stored as the jsonb of the record
+   * @param handler receives the ID when the record is created
+   */
+  public static void insert(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    String id,
+    Object entity,
+    Handler<AsyncResult<String>> handler) {
+
+    String key = tenantId + "\n" + table;
+    Pending record = new Pending(id, Json.encode(entity),
+      Vertx.currentContext(), handler);
+
+    List<Pending> full = null;
+    boolean first;
+
+    synchronized(pending) {
+      List<Pending> waiting = pending.computeIfAbsent(key, k -> new ArrayList<>());
+
+      first = waiting.isEmpty();
+      waiting.add(record);
+
+      if(waiting.size() >= maximumBatch) {
+        full = pending.remove(key);
+      }
+    }
+
+    if(full != null) {
+      flush(vertx, tenantId, table, full);
+    }
+    else if(first) {
+      //a timer left over from a batch which filled up early may flush
+      //the next batch sooner than its window, which is harmless
+      vertx.setTimer(windowMillis, timer -> {
+        List<Pending> batch;
+
+        synchronized(pending) {
+          batch = pending.remove(key);
+        }
+
+        if(batch != null) {
+          flush(vertx, tenantId, table, batch);
+        }
+      });
+    }
+  }
+
+  private static void flush(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    List<Pending> batch) {
+
+    if(batch.size() == 1) {
+      insertEach(vertx, tenantId, table, batch);
+      return;
+    }
+
+    JsonArray parameters = new JsonArray();
+
+    for(Pending record : batch) {
+      parameters.add(record.id).add(record.json);
+    }
+
+    String sql = String.format(
+      "INSERT INTO %s (_id, jsonb) VALUES %s ON CONFLICT DO NOTHING RETURNING _id::text AS id",
+      StorageSql.tableName(tenantId, table),
+      String.join(", ", Collections.nCopies(batch.size(), "(?::uuid, ?::jsonb)")));
+
+    StorageSql.query(vertx, tenantId, sql, parameters, reply -> {
+      if(reply.failed()) {
+        log.debug("Unable to insert " + batch.size() + " records together, "
+          + "inserting each on its own", reply.cause());
+
+        insertEach(vertx, tenantId, table, batch);
+        return;
+      }
+
+      Set<String> inserted = new HashSet<>();
+
+      for(JsonObject row : reply.result().getRows()) {
+        inserted.add(row.getString("id"));
+      }
+
+      batches.incrementAndGet();
+      records.addAndGet(inserted.size());
+
+      List<Pending> notInserted = new ArrayList<>();
+
+      for(Pending record : batch) {
+        //only the first of several records with the same ID was inserted
+        if(inserted.remove(record.id.toLowerCase())) {
+          record.complete(Future.succeededFuture(record.id));
+        }
+        else {
+          notInserted.add(record);
+        }
+      }
+
+      insertEach(vertx, tenantId, table, notInserted);
+    });
+  }
+
+  private static void insertEach(
+    Vertx vertx,
+    String tenantId,
+    String table,
+    List<Pending> batch) {
+
+    String sql = String.format("INSERT INTO %s (_id, jsonb) VALUES (?::uuid, ?::jsonb)",
+      StorageSql.tableName(tenantId, table));
+
+    for(Pending record : batch) {
+      JsonArray parameters = new JsonArray()
+        .add(record.id)
+        .add(record.json);
+
+      StorageSql.update(vertx, tenantId, sql, parameters, reply -> {
+        if(reply.succeeded()) {
+          record.complete(Future.succeededFuture(record.id));
+        }
+        else {
+          record.complete(Future.failedFuture(reply.cause()));
+        }
+      });
+    }
+  }
+
+  private static class Pending {
+    private final String id;
+    private final String json;
+    private final Context context;
+    private final Handler<AsyncResult<String>> handler;
+
+    private Pending(
+      String id,
+      String json,
+      Context context,
+      Handler<AsyncResult<String>> handler) {
+
+      this.id = id;
+      this.json = json;
+      this.context = context;
+      this.handler = handler;
+    }
+
+    private void complete(AsyncResult<String> outcome) {
+      //not created on a context (e.g. outside of vert.x), so any thread will do
+      if(context == null) {
+        handler.handle(outcome);
+      }
+      else {
+        context.runOnContext(v -> handler.handle(outcome));
+      }
+    }
+  }
+}
@@ -4,19 +4,338 @@ GRANT myuniversity_mymodule TO CURRENT_USER;
 
 CREATE SCHEMA myuniversity_mymodule AUTHORIZATION myuniversity_mymodule;
 
-CREATE TABLE myuniversity_mymodule.item (
-  _id UUID PRIMARY KEY,
-  jsonb JSONB NOT NULL
+-- change the version column of a record whenever the record is changed
+-- the sequence to take the version from is provided as the trigger argument
+CREATE OR REPLACE FUNCTION myuniversity_mymodule.update_version_column()
+RETURNS TRIGGER AS $$
+BEGIN
+  IF NEW.jsonb IS DISTINCT FROM OLD.jsonb THEN
+    NEW.version = nextval(TG_ARGV[0]::regclass);
+  ELSE
+    NEW.version = OLD.version;
+  END IF;
+  RETURN NEW;
+END;
+$$ language 'plpgsql';
+
+-- changes to items and instances, so that other modules (e.g. search indexes)
+-- can find out what has changed without fetching every record
+CREATE TABLE myuniversity_mymodule.change (
+  id BIGSERIAL PRIMARY KEY,
+  -- transaction which made the change, changes are provided in order of transaction ID
+  -- (assigned at the first change a transaction makes), and only once every transaction
+  -- with the same or a lower ID has finished, so that none are passed over
+  txid BIGINT NOT NULL DEFAULT txid_current(),
+  tablename TEXT NOT NULL,
+  -- null when every record in the table was removed
+  recordid UUID,
+  operation TEXT NOT NULL,
+  changed TIMESTAMPTZ NOT NULL DEFAULT now()
 );
+-- fetching the changes which follow a resume token (see ChangeFeed)
+CREATE INDEX change_tablename_txid_id_idx ON myuniversity_mymodule.change(tablename, txid, id);
+-- finding records deleted since a point in time, and removing changes which are no longer kept
+CREATE INDEX change_changed_idx ON myuniversity_mymodule.change(changed);
+
+-- record a change to a table, updates which leave the record the same are not changes
+CREATE OR REPLACE FUNCTION myuniversity_mymodule.record_change()
+RETURNS TRIGGER AS $$
+DECLARE
+  record_id UUID;
+BEGIN
+  IF TG_OP = 'TRUNCATE' THEN
+    record_id := NULL;
+  ELSIF TG_OP = 'DELETE' THEN
+    record_id := OLD._id;
+  ELSE
+    IF TG_OP = 'UPDATE' THEN
+      IF NEW.jsonb IS NOT DISTINCT FROM OLD.jsonb THEN
+        RETURN NULL;
+      END IF;
+    END IF;
+    record_id := NEW._id;
+  END IF;
+  INSERT INTO myuniversity_mymodule.change (tablename, recordid, operation)
+    VALUES (TG_TABLE_NAME, record_id, TG_OP);
+  RETURN NULL;
+END;
+$$ language 'plpgsql';
+
+-- notify any listeners on the change channel that a table has changed, once per statement
+-- rather than per row (before Postgres 13 every notification is compared with those already
+-- queued by the transaction), listeners then fetch the changes which follow their resume token
+-- also removes changes which are no longer kept (after 7 days, ChangeFeed.RETENTION_DAYS),
+-- for about one statement in a thousand, a limited number at a time and by one transaction at a time
+CREATE OR REPLACE FUNCTION myuniversity_mymodule.notify_change()
+RETURNS TRIGGER AS $$
+BEGIN
+  PERFORM pg_notify('myuniversity_mymodule_change', json_build_object(
+    'table', TG_TABLE_NAME, 'operation', TG_OP)::text);
+  IF random() < 0.001
+    AND pg_try_advisory_xact_lock(hashtext('myuniversity_mymodule.change')) THEN
+    DELETE FROM myuniversity_mymodule.change WHERE id IN (
+      SELECT id FROM myuniversity_mymodule.change
+        WHERE changed < now() - interval '7 days' LIMIT 10000);
+  END IF;
+  RETURN NULL;
+END;
+$$ language 'plpgsql';
+
+GRANT ALL ON myuniversity_mymodule.change TO myuniversity_mymodule;
+GRANT ALL ON SEQUENCE myuniversity_mymodule.change_id_seq TO myuniversity_mymodule;
+
+-- change the update_date column of a record whenever the record is changed
+CREATE OR REPLACE FUNCTION myuniversity_mymodule.update_date_column()
+RETURNS TRIGGER AS $$
+BEGIN
+  IF NEW.jsonb IS DISTINCT FROM OLD.jsonb THEN
+    NEW.update_date = current_timestamp;
+  ELSE
+    NEW.update_date = OLD.update_date;
+  END IF;
+  RETURN NEW;
+END;
+$$ language 'plpgsql';
+
+-- versions are taken from a sequence, so a record that is deleted and created again
+-- never reuses a version (and so an ETag) of an earlier record
+CREATE SEQUENCE myuniversity_mymodule.item_version_seq;
+
+-- items are usually kept in a single table, for very large tenants the table can instead
+-- be hash partitioned by ID (which needs Postgres 13 or later), by setting the number of
+-- partitions before the tenant is created, e.g.
+--   ALTER DATABASE folio SET inventory_storage.item_partitions = 16;
+-- (the tests use a partitioned table when run with -Dorg.folio.inventory.storage.test.item.partitions=16)
+-- each partition (and its indexes) is vacuumed and maintained separately, and fetching,
+-- replacing or deleting an item by ID only involves one partition
+-- unique indexes on a partitioned table must include the partition key, so barcodes
+-- are instead kept unique by the item_barcode table (maintained by a trigger)
+-- a duplicate barcode then fails the whole statement, even with ON CONFLICT DO NOTHING,
+-- so a batch of items is then inserted one item at a time (see BatchInsert)
+CREATE OR REPLACE FUNCTION myuniversity_mymodule.update_item_barcode()
+RETURNS TRIGGER AS $$
+BEGIN
+  IF TG_OP = 'TRUNCATE' THEN
+    DELETE FROM myuniversity_mymodule.item_barcode;
+    RETURN NULL;
+  END IF;
+  IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.jsonb->>'barcode' IS NOT NULL THEN
+    DELETE FROM myuniversity_mymodule.item_barcode
+      WHERE barcode = OLD.jsonb->>'barcode' AND _id = OLD._id;
+  END IF;
+  IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.jsonb->>'barcode' IS NOT NULL THEN
+    INSERT INTO myuniversity_mymodule.item_barcode (barcode, _id)
+      VALUES (NEW.jsonb->>'barcode', NEW._id);
+  END IF;
+  RETURN NULL;
+END;
+$$ language 'plpgsql';
+
+DO $$
+DECLARE
+  partitions INTEGER := coalesce(nullif(
+    current_setting('inventory_storage.item_partitions', true), ''), '0')::integer;
+BEGIN
+  IF partitions < 2 THEN
+    CREATE TABLE myuniversity_mymodule.item (
+      _id UUID PRIMARY KEY,
+      jsonb JSONB NOT NULL,
+      version BIGINT NOT NULL DEFAULT nextval('myuniversity_mymodule.item_version_seq'),
+      creation_date TIMESTAMPTZ NOT NULL DEFAULT current_timestamp,
+      update_date TIMESTAMPTZ NOT NULL DEFAULT current_timestamp,
+      -- copy of jsonb->>'materialTypeId', so that it can be a foreign key
+      materialtypeid UUID,
+      -- copies of frequently searched properties, compared instead of the jsonb (see ScalarColumns)
+      barcode TEXT,
+      instanceid TEXT,
+      status TEXT,
+      location TEXT
+    );
+
+    -- barcodes must be unique, enforced here so that concurrent writes cannot create duplicates
+    -- also serves exact match searches by barcode
+    CREATE UNIQUE INDEX item_barcode_unique_idx ON myuniversity_mymodule.item(barcode);
+  ELSE
+    IF current_setting('server_version_num')::integer < 130000 THEN
+      RAISE EXCEPTION 'Partitioned items need Postgres 13 or later';
+    END IF;
+
+    -- columns must be kept in step with the single table above
+    -- run with EXECUTE, as versions before 11 cannot parse PARTITION BY HASH (even when not used)
+    EXECUTE 'CREATE TABLE myuniversity_mymodule.item ('
+      ' _id UUID PRIMARY KEY,'
+      ' jsonb JSONB NOT NULL,'
+      ' version BIGINT NOT NULL DEFAULT nextval(''myuniversity_mymodule.item_version_seq''),'
+      ' creation_date TIMESTAMPTZ NOT NULL DEFAULT current_timestamp,'
+      ' update_date TIMESTAMPTZ NOT NULL DEFAULT current_timestamp,'
+      ' materialtypeid UUID,'
+      ' barcode TEXT,'
+      ' instanceid TEXT,'
+      ' status TEXT,'
+      ' location TEXT'
+      ') PARTITION BY HASH (_id)';
+
+    FOR remainder IN 0 .. partitions - 1 LOOP
+      EXECUTE format(
+        'CREATE TABLE myuniversity_mymodule.item_%s PARTITION OF myuniversity_mymodule.item'
+          ' FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+        remainder, partitions, remainder);
+    END LOOP;
+
+    -- the constraint has the same name as the unique index, so that duplicates are reported the same way
+    CREATE TABLE myuniversity_mymodule.item_barcode (
+      barcode TEXT CONSTRAINT item_barcode_unique_idx PRIMARY KEY,
+      _id UUID NOT NULL
+    );
+
+    CREATE TRIGGER update_item_barcode AFTER INSERT OR UPDATE OR DELETE ON myuniversity_mymodule.item FOR EACH ROW EXECUTE PROCEDURE myuniversity_mymodule.update_item_barcode();
+    CREATE TRIGGER truncate_item_barcode AFTER TRUNCATE ON myuniversity_mymodule.item FOR EACH STATEMENT EXECUTE PROCEDURE myuniversity_mymodule.update_item_barcode();
+
+    GRANT ALL ON myuniversity_mymodule.item_barcode TO myuniversity_mymodule;
+
+    -- exact match searches by barcode
+    CREATE INDEX item_barcode_idx ON myuniversity_mymodule.item(barcode);
+  END IF;
+END $$;
+
+-- allow querying jsonb
+CREATE INDEX idxgin_item ON myuniversity_mymodule.item USING gin (jsonb jsonb_path_ops);
+-- exact match searches on frequently used properties
+CREATE INDEX item_instanceid_idx ON myuniversity_mymodule.item(instanceid);
+CREATE INDEX item_status_idx ON myuniversity_mymodule.item(status);
+CREATE INDEX item_location_idx ON myuniversity_mymodule.item(location);
+CREATE INDEX item_materialtypeid_idx ON myuniversity_mymodule.item((jsonb->>'materialTypeId'));
+CREATE INDEX item_title_idx ON myuniversity_mymodule.item((jsonb->>'title'));
+
+CREATE TRIGGER update_version_item BEFORE UPDATE ON myuniversity_mymodule.item FOR EACH ROW EXECUTE PROCEDURE myuniversity_mymodule.update_version_column('myuniversity_mymodule.item_version_seq');
+CREATE TRIGGER update_date_item BEFORE UPDATE ON myuniversity_mymodule.item FOR EACH ROW EXECUTE PROCEDURE myuniversity_mymodule.update_date_column();
+-- paging through the items changed since a point in time
+CREATE INDEX item_update_date_idx ON myuniversity_mymodule.item(update_date, _id);
+
+-- keep the materialtypeid, barcode, instanceid, status and location columns in step with the item
+CREATE OR REPLACE FUNCTION myuniversity_mymodule.update_item_columns()
+RETURNS TRIGGER AS $$
+BEGIN
+  NEW.materialtypeid = (NEW.jsonb->>'materialTypeId')::uuid;
+  NEW.barcode = NEW.jsonb->>'barcode';
+  NEW.instanceid = NEW.jsonb->>'instanceId';
+  NEW.status = NEW.jsonb->'status'->>'name';
+  NEW.location = NEW.jsonb->'location'->>'name';
+  RETURN NEW;
+END;
+$$ language 'plpgsql';
+CREATE TRIGGER update_columns_item BEFORE INSERT OR UPDATE ON myuniversity_mymodule.item FOR EACH ROW EXECUTE PROCEDURE myuniversity_mymodule.update_item_columns();
+-- checking whether a material type is in use (e.g. when deleting it)
+CREATE INDEX item_materialtypeid_fkey_idx ON myuniversity_mymodule.item(materialtypeid);
+
+CREATE TRIGGER record_change_item AFTER INSERT OR UPDATE OR DELETE ON myuniversity_mymodule.item FOR EACH ROW EXECUTE PROCEDURE myuniversity_mymodule.record_change();
+CREATE TRIGGER record_truncate_item AFTER TRUNCATE ON myuniversity_mymodule.item FOR EACH STATEMENT EXECUTE PROCEDURE myuniversity_mymodule.record_change();
+CREATE TRIGGER notify_change_item AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON myuniversity_mymodule.item FOR EACH STATEMENT EXECUTE PROCEDURE myuniversity_mymodule.notify_change();
 
 GRANT ALL ON myuniversity_mymodule.item TO myuniversity_mymodule;
+GRANT ALL ON SEQUENCE myuniversity_mymodule.item_version_seq TO myuniversity_mymodule;
+
+-- applies a JSON merge patch (RFC 7386) to a record, allowing partial updates in a single statement
+-- properties in the patch replace those in the target, objects are merged and null removes a property
+CREATE OR REPLACE FUNCTION myuniversity_mymodule.jsonb_merge_patch(target jsonb, patch jsonb)
+RETURNS jsonb AS $$
+DECLARE
+  merged jsonb;
+  patch_key text;
+  patch_value jsonb;
+BEGIN
+  IF jsonb_typeof(patch) IS DISTINCT FROM 'object' THEN
+    RETURN patch;
+  END IF;
+  IF jsonb_typeof(target) IS DISTINCT FROM 'object' THEN
+    merged := '{}'::jsonb;
+  ELSE
+    merged := target;
+  END IF;
+  FOR patch_key, patch_value IN SELECT key, value FROM jsonb_each(patch) LOOP
+    IF jsonb_typeof(patch_value) = 'null' THEN
+      merged := merged - patch_key;
+    ELSE
+      merged := merged || jsonb_build_object(patch_key,
+        myuniversity_mymodule.jsonb_merge_patch(merged -> patch_key, patch_value));
+    END IF;
+  END LOOP;
+  RETURN merged;
+END;
+$$ language 'plpgsql' IMMUTABLE;
+
+CREATE SEQUENCE myuniversity_mymodule.instance_version_seq;
 
 CREATE TABLE myuniversity_mymodule.instance (
   _id UUID PRIMARY KEY,
-  jsonb JSONB NOT NULL
+  jsonb JSONB NOT NULL,
+  version BIGINT NOT NULL DEFAULT nextval('myuniversity_mymodule.instance_version_seq'),
+  creation_date TIMESTAMPTZ NOT NULL DEFAULT current_timestamp,
+  update_date TIMESTAMPTZ NOT NULL DEFAULT current_timestamp,
+  -- words of the title, for keyword searches (see FullTextSearch)
+  title_tsvector TSVECTOR
 );
 
+-- allow querying jsonb
+CREATE INDEX idxgin_instance ON myuniversity_mymodule.instance USING gin (jsonb jsonb_path_ops);
+CREATE INDEX instance_title_idx ON myuniversity_mymodule.instance((jsonb->>'title'));
+CREATE INDEX instance_title_tsvector_idx ON myuniversity_mymodule.instance USING gin (title_tsvector);
+
+-- keep the title_tsvector column in step with the instance
+-- the text search configuration must be the same as FullTextSearch.CONFIGURATION
+CREATE OR REPLACE FUNCTION myuniversity_mymodule.update_instance_columns()
+RETURNS TRIGGER AS $$
+BEGIN
+  NEW.title_tsvector = to_tsvector('simple', coalesce(NEW.jsonb->>'title', ''));
+  RETURN NEW;
+END;
+$$ language 'plpgsql';
+CREATE TRIGGER update_columns_instance BEFORE INSERT OR UPDATE ON myuniversity_mymodule.instance FOR EACH ROW EXECUTE PROCEDURE myuniversity_mymodule.update_instance_columns();
+
+CREATE TRIGGER update_version_instance BEFORE UPDATE ON myuniversity_mymodule.instance FOR EACH ROW EXECUTE PROCEDURE myuniversity_mymodule.update_version_column('myuniversity_mymodule.instance_version_seq');
+CREATE TRIGGER update_date_instance BEFORE UPDATE ON myuniversity_mymodule.instance FOR EACH ROW EXECUTE PROCEDURE myuniversity_mymodule.update_date_column();
+-- paging through the instances changed since a point in time
+CREATE INDEX instance_update_date_idx ON myuniversity_mymodule.instance(update_date, _id);
+
+CREATE TRIGGER record_change_instance AFTER INSERT OR UPDATE OR DELETE ON myuniversity_mymodule.instance FOR EACH ROW EXECUTE PROCEDURE myuniversity_mymodule.record_change();
+CREATE TRIGGER record_truncate_instance AFTER TRUNCATE ON myuniversity_mymodule.instance FOR EACH STATEMENT EXECUTE PROCEDURE myuniversity_mymodule.record_change();
+CREATE TRIGGER notify_change_instance AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON myuniversity_mymodule.instance FOR EACH STATEMENT EXECUTE PROCEDURE myuniversity_mymodule.notify_change();
+
 GRANT ALL ON myuniversity_mymodule.instance TO myuniversity_mymodule;
+GRANT ALL ON SEQUENCE myuniversity_mymodule.instance_version_seq TO myuniversity_mymodule;
+
+-- trigram indexes, so that searches for part of a title or barcode (e.g. title="*uproot*")
+-- need not scan every record, only when the pg_trgm extension is available
+-- (they can be left out with ALTER DATABASE folio SET inventory_storage.trigram_indexes = off)
+DO $$
+DECLARE
+  extension_schema TEXT;
+BEGIN
+  IF coalesce(nullif(current_setting('inventory_storage.trigram_indexes', true), ''), 'on') = 'off' THEN
+    RETURN;
+  END IF;
+
+  IF NOT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm') THEN
+    BEGIN
+      -- shared by all tenants, so not created in the schema of this tenant
+      CREATE EXTENSION pg_trgm SCHEMA public;
+    EXCEPTION WHEN OTHERS THEN
+      RAISE NOTICE 'Trigram indexes not created, pg_trgm is not available: %', SQLERRM;
+      RETURN;
+    END;
+  END IF;
+
+  SELECT n.nspname INTO extension_schema
+    FROM pg_extension e JOIN pg_namespace n ON n.oid = e.extnamespace
+    WHERE e.extname = 'pg_trgm';
+
+  EXECUTE format('CREATE INDEX item_title_trgm_idx ON myuniversity_mymodule.item'
+    ' USING gin ((jsonb->>''title'') %I.gin_trgm_ops)', extension_schema);
+  EXECUTE format('CREATE INDEX item_barcode_trgm_idx ON myuniversity_mymodule.item'
+    ' USING gin (barcode %I.gin_trgm_ops)', extension_schema);
+  EXECUTE format('CREATE INDEX instance_title_trgm_idx ON myuniversity_mymodule.instance'
+    ' USING gin ((jsonb->>''title'') %I.gin_trgm_ops)', extension_schema);
+END $$;
 
 -- *** loan type start *** --
 -- loan type table
@@ -64,4 +383,6 @@ END;
 $$ language 'plpgsql';
 CREATE TRIGGER update_date_mtype BEFORE UPDATE ON myuniversity_mymodule.material_type FOR EACH ROW EXECUTE PROCEDURE  update_modified_column_mtype();
 GRANT ALL ON myuniversity_mymodule.material_type TO myuniversity_mymodule;
+-- items can only refer to material types which exist, and material types in use cannot be deleted
+ALTER TABLE myuniversity_mymodule.item ADD CONSTRAINT item_materialtypeid_fkey FOREIGN KEY (materialtypeid) REFERENCES myuniversity_mymodule.material_type (_id);
 -- *** material type end *** --
@@ -4,12 +4,15 @@ import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import org.folio.rest.support.*;
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLEncoder;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -17,8 +20,10 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import static org.folio.rest.support.JsonObjectMatchers.identifierMatches;
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.junit.Assert.assertThat;
 
@@ -218,6 +223,45 @@ public class InstanceStorageTest {
     assertThat(itemFromGet.getString("title"), is("A Long Way to a Small Angry Planet"));
   }
 
+  @Test
+  public void canCreateABatchOfInstances()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    UUID firstId = UUID.randomUUID();
+    UUID secondId = UUID.randomUUID();
+
+    createInstance(nod(secondId));
+
+    JsonObject batch = new JsonObject().put("instances", new JsonArray()
+      .add(smallAngryPlanet(firstId))
+      .add(nod(secondId)));
+
+    CompletableFuture<JsonResponse> createCompleted = new CompletableFuture();
+
+    client.post(instanceStorageUrl("/batch"), batch, StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(createCompleted));
+
+    JsonResponse response = createCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(response.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+    JsonObject result = response.getJson();
+
+    assertThat(result.getInteger("createdRecords"), is(1));
+    assertThat(result.getInteger("failedRecords"), is(1));
+
+    JsonArray results = result.getJsonArray("results");
+
+    assertThat(results.getJsonObject(0).getString("id"), is(firstId.toString()));
+    assertThat(results.getJsonObject(0).getBoolean("created"), is(true));
+
+    assertThat(results.getJsonObject(1).getString("id"), is(secondId.toString()));
+    assertThat(results.getJsonObject(1).getBoolean("created"), is(false));
+
+    assertThat(getById(firstId).getStatusCode(), is(HttpURLConnection.HTTP_OK));
+  }
+
   @Test
   public void canDeleteAnInstance() throws InterruptedException,
     MalformedURLException, TimeoutException, ExecutionException {
@@ -369,6 +413,57 @@ public class InstanceStorageTest {
     assertThat(secondPage.getInteger("totalRecords"), is(5));
   }
 
+  @Test
+  public void canPageAllInstancesUsingACursor()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    createInstance(smallAngryPlanet(UUID.randomUUID()));
+    createInstance(nod(UUID.randomUUID()));
+    createInstance(uprooted(UUID.randomUUID()));
+    createInstance(temeraire(UUID.randomUUID()));
+    createInstance(interestingTimes(UUID.randomUUID()));
+
+    CompletableFuture<JsonResponse> firstPageCompleted = new CompletableFuture();
+
+    client.get(instanceStorageUrl() + "?limit=3&cursor=start",
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(firstPageCompleted));
+
+    JsonResponse firstPageResponse = firstPageCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(firstPageResponse.getStatusCode(), is(200));
+
+    JsonObject firstPage = firstPageResponse.getJson();
+
+    CompletableFuture<JsonResponse> secondPageCompleted = new CompletableFuture();
+
+    client.get(instanceStorageUrl() + "?limit=3&cursor="
+        + firstPage.getString("nextCursor"),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(secondPageCompleted));
+
+    JsonResponse secondPageResponse = secondPageCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(secondPageResponse.getStatusCode(), is(200));
+
+    JsonObject secondPage = secondPageResponse.getJson();
+
+    JsonArray firstPageInstances = firstPage.getJsonArray("instances");
+    JsonArray secondPageInstances = secondPage.getJsonArray("instances");
+
+    assertThat(firstPageInstances.size(), is(3));
+    assertThat(firstPage.getString("nextCursor"), notNullValue());
+
+    assertThat(secondPageInstances.size(), is(2));
+    assertThat(secondPage.containsKey("nextCursor"), is(false));
+
+    String lastIdOnFirstPage = firstPageInstances.getJsonObject(2).getString("id");
+    String firstIdOnSecondPage = secondPageInstances.getJsonObject(0).getString("id");
+
+    assertThat(lastIdOnFirstPage.compareTo(firstIdOnSecondPage) < 0, is(true));
+  }
+
   @Test
   public void canSearchForInstancesByTitle()
     throws MalformedURLException,
@@ -404,6 +499,91 @@ public class InstanceStorageTest {
       is("Uprooted"));
   }
 
+  @Test
+  public void canSearchForInstancesByAllWordsInTheTitle()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    createInstance(smallAngryPlanet(UUID.randomUUID()));
+    createInstance(nod(UUID.randomUUID()));
+    createInstance(uprooted(UUID.randomUUID()));
+
+    JsonObject searchBody = searchForInstances(
+      "title all \"planet angry\"");
+
+    JsonArray foundInstances = searchBody.getJsonArray("instances");
+
+    assertThat(foundInstances.size(), is(1));
+    assertThat(searchBody.getInteger("totalRecords"), is(1));
+
+    assertThat(foundInstances.getJsonObject(0).getString("title"),
+      is("Long Way to a Small Angry Planet"));
+  }
+
+  @Test
+  public void canSearchForInstancesByAnyWordInTheTitle()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    createInstance(smallAngryPlanet(UUID.randomUUID()));
+    createInstance(nod(UUID.randomUUID()));
+    createInstance(interestingTimes(UUID.randomUUID()));
+    createInstance(createInstanceRequest(UUID.randomUUID(),
+      "Interesting Times in Nod", new JsonArray()));
+
+    JsonObject searchBody = searchForInstances("title any \"nod times\"");
+
+    JsonArray foundInstances = searchBody.getJsonArray("instances");
+
+    assertThat(foundInstances.size(), is(3));
+    assertThat(searchBody.getInteger("totalRecords"), is(3));
+
+    //matches both words, so is ranked first
+    assertThat(foundInstances.getJsonObject(0).getString("title"),
+      is("Interesting Times in Nod"));
+  }
+
+  @Test
+  public void canSearchForInstancesByTheStartOfAWordInTheTitle()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    createInstance(smallAngryPlanet(UUID.randomUUID()));
+    createInstance(uprooted(UUID.randomUUID()));
+    createInstance(temeraire(UUID.randomUUID()));
+
+    JsonObject searchBody = searchForInstances("title all \"upro*\"");
+
+    JsonArray foundInstances = searchBody.getJsonArray("instances");
+
+    assertThat(foundInstances.size(), is(1));
+
+    assertThat(foundInstances.getJsonObject(0).getString("title"),
+      is("Uprooted"));
+  }
+
+  @Test
+  public void keywordSearchesOnTitleUseAnIndex()
+    throws Exception {
+
+    String plan = StorageTestSuite.explain("instance",
+      "title all \"angry planet\"");
+
+    assertThat(plan, containsString("instance_title_tsvector_idx"));
+    assertThat(plan, not(containsString("Seq Scan")));
+  }
+
+  @Test
+  public void searchesForPartOfATitleUseATrigramIndex()
+    throws Exception {
+
+    //only created when the pg_trgm extension is available
+    Assume.assumeTrue(StorageTestSuite.hasIndex("instance_title_trgm_idx"));
+
+    assertThat(StorageTestSuite.explain("instance", "title=\"*uproot*\""),
+      containsString("instance_title_trgm_idx"));
+  }
+
   @Test
   public void canDeleteAllInstances()
     throws MalformedURLException,
@@ -513,6 +693,30 @@ public class InstanceStorageTest {
     }
   }
 
+  private JsonObject searchForInstances(String query)
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    CompletableFuture<JsonResponse> searchCompleted = new CompletableFuture();
+
+    try {
+      String url = instanceStorageUrl() + "?query="
+        + URLEncoder.encode(query, "UTF-8");
+
+      client.get(url, StorageTestSuite.TENANT_ID,
+        ResponseHandler.json(searchCompleted));
+    }
+    catch(UnsupportedEncodingException e) {
+      throw new RuntimeException(e);
+    }
+
+    JsonResponse searchResponse = searchCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(searchResponse.getStatusCode(), is(200));
+
+    return searchResponse.getJson();
+  }
+
   private static URL instanceStorageUrl() throws MalformedURLException {
     return instanceStorageUrl("");
   }
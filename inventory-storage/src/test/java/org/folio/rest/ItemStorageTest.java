@@ -2,19 +2,32 @@ package org.folio.rest;
 
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.sql.SQLConnection;
 import org.folio.rest.support.*;
 import org.junit.*;
 
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLEncoder;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.junit.Assert.assertThat;
 
@@ -229,6 +242,439 @@ public class ItemStorageTest {
       is("Main Library"));
   }
 
+  @Test
+  public void canCreateABatchOfItems()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    UUID firstId = UUID.randomUUID();
+    UUID secondId = UUID.randomUUID();
+
+    JsonObject batch = new JsonObject().put("items", new JsonArray()
+      .add(smallAngryPlanet(firstId, UUID.randomUUID()))
+      .add(nod(secondId, UUID.randomUUID())));
+
+    CompletableFuture<JsonResponse> createCompleted = new CompletableFuture();
+
+    client.post(itemStorageUrl("/batch"), batch, StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(createCompleted));
+
+    JsonResponse postResponse = createCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(postResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+    JsonObject result = postResponse.getJson();
+
+    assertThat(result.getInteger("createdRecords"), is(2));
+    assertThat(result.getInteger("failedRecords"), is(0));
+
+    assertThat(getById(firstId).getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    assertThat(getById(secondId).getStatusCode(), is(HttpURLConnection.HTTP_OK));
+  }
+
+  @Test
+  public void batchReportsEachItemThatCannotBeCreated()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    UUID createdId = UUID.randomUUID();
+    UUID unknownMaterialTypeId = UUID.randomUUID();
+
+    JsonObject withUnknownMaterialType = nod(UUID.randomUUID(), UUID.randomUUID())
+      .put("materialTypeId", unknownMaterialTypeId.toString());
+
+    JsonObject batch = new JsonObject().put("items", new JsonArray()
+      .add(smallAngryPlanet(createdId, UUID.randomUUID()))
+      .add(withUnknownMaterialType)
+      .add(uprooted().put("id", "1234")));
+
+    CompletableFuture<JsonResponse> createCompleted = new CompletableFuture();
+
+    client.post(itemStorageUrl("/batch"), batch, StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(createCompleted));
+
+    JsonResponse postResponse = createCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(postResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+    JsonObject result = postResponse.getJson();
+
+    assertThat(result.getInteger("createdRecords"), is(1));
+    assertThat(result.getInteger("failedRecords"), is(2));
+
+    JsonArray results = result.getJsonArray("results");
+
+    assertThat(results.getJsonObject(0).getBoolean("created"), is(true));
+
+    assertThat(results.getJsonObject(1).getBoolean("created"), is(false));
+    assertThat(results.getJsonObject(1).getString("message"),
+      is("Can not add " + unknownMaterialTypeId + ". Material type not found"));
+
+    assertThat(results.getJsonObject(2).getBoolean("created"), is(false));
+    assertThat(results.getJsonObject(2).getString("message"),
+      is("ID must be a UUID"));
+
+    assertThat(getById(createdId).getStatusCode(), is(HttpURLConnection.HTTP_OK));
+  }
+
+  @Test
+  public void batchReportsEachItemWithAMaterialTypeDeletedSinceItWasCached()
+    throws Exception {
+
+    CompletableFuture<JsonResponse> mtCreateCompleted = new CompletableFuture();
+
+    client.post(getMTUrl(), new JsonObject().put("name", "globe"),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(mtCreateCompleted));
+
+    String deletedMaterialTypeId = mtCreateCompleted.get(5, TimeUnit.SECONDS)
+      .getJson().getString("id");
+
+    //so that the material type is cached as existing
+    UUID cachingId = UUID.randomUUID();
+
+    createItem(nod(cachingId, UUID.randomUUID())
+      .put("materialTypeId", deletedMaterialTypeId));
+
+    CompletableFuture<Response> itemDeleteCompleted = new CompletableFuture();
+
+    client.delete(itemStorageUrl(String.format("/%s", cachingId)),
+      StorageTestSuite.TENANT_ID, ResponseHandler.empty(itemDeleteCompleted));
+
+    itemDeleteCompleted.get(5, TimeUnit.SECONDS);
+
+    //deleted without the cache knowing, e.g. via another instance of the module
+    SQLConnection connection = StorageTestSuite.beginTransaction();
+
+    try {
+      StorageTestSuite.execute(connection, String.format(
+        "DELETE FROM test_tenant_inventory_storage.material_type WHERE _id = '%s'",
+        deletedMaterialTypeId));
+
+      StorageTestSuite.commit(connection);
+    }
+    finally {
+      connection.close();
+    }
+
+    UUID createdId = UUID.randomUUID();
+
+    JsonObject batch = new JsonObject().put("items", new JsonArray()
+      .add(uprooted().put("materialTypeId", deletedMaterialTypeId))
+      .add(smallAngryPlanet(createdId, UUID.randomUUID())));
+
+    CompletableFuture<JsonResponse> createCompleted = new CompletableFuture();
+
+    client.post(itemStorageUrl("/batch"), batch, StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(createCompleted));
+
+    JsonResponse postResponse = createCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(postResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+    JsonObject result = postResponse.getJson();
+
+    assertThat(result.getInteger("createdRecords"), is(1));
+    assertThat(result.getInteger("failedRecords"), is(1));
+
+    JsonArray results = result.getJsonArray("results");
+
+    assertThat(results.getJsonObject(0).getBoolean("created"), is(false));
+    assertThat(results.getJsonObject(0).getString("message"),
+      is("Can not add " + deletedMaterialTypeId + ". Material type not found"));
+
+    assertThat(results.getJsonObject(1).getBoolean("created"), is(true));
+
+    assertThat(getById(createdId).getStatusCode(), is(HttpURLConnection.HTTP_OK));
+  }
+
+  @Test
+  public void batchReportsEachItemWithADuplicateBarcode()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    createItem(smallAngryPlanet());
+
+    UUID createdId = UUID.randomUUID();
+    UUID duplicateId = UUID.randomUUID();
+
+    JsonObject batch = new JsonObject().put("items", new JsonArray()
+      .add(nod(createdId, UUID.randomUUID()))
+      .add(uprooted().put("id", duplicateId.toString())
+        .put("barcode", "036000291452")));
+
+    CompletableFuture<JsonResponse> createCompleted = new CompletableFuture();
+
+    client.post(itemStorageUrl("/batch"), batch, StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(createCompleted));
+
+    JsonResponse postResponse = createCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(postResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+    JsonObject result = postResponse.getJson();
+
+    assertThat(result.getInteger("createdRecords"), is(1));
+    assertThat(result.getInteger("failedRecords"), is(1));
+
+    JsonArray results = result.getJsonArray("results");
+
+    assertThat(results.getJsonObject(0).getBoolean("created"), is(true));
+    assertThat(results.getJsonObject(1).getBoolean("created"), is(false));
+
+    assertThat(getById(createdId).getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    assertThat(getById(duplicateId).getStatusCode(), is(HttpURLConnection.HTTP_NOT_FOUND));
+  }
+
+  @Test
+  public void barcodeOfARemovedItemCanBeReusedWhenItemsArePartitioned()
+    throws Exception {
+
+    //only when the test tenant was created with a partitioned item table
+    Assume.assumeTrue(StorageTestSuite.isPartitioned("item"));
+
+    UUID id = UUID.randomUUID();
+
+    createItem(smallAngryPlanet(id, UUID.randomUUID()));
+
+    CompletableFuture<Response> deleteCompleted = new CompletableFuture();
+
+    client.delete(itemStorageUrl(String.format("/%s", id)),
+      StorageTestSuite.TENANT_ID, ResponseHandler.empty(deleteCompleted));
+
+    assertThat(deleteCompleted.get(5, TimeUnit.SECONDS).getStatusCode(),
+      is(HttpURLConnection.HTTP_NO_CONTENT));
+
+    UUID reusedId = UUID.randomUUID();
+
+    JsonObject batch = new JsonObject().put("items", new JsonArray()
+      .add(nod(reusedId, UUID.randomUUID()).put("barcode", "036000291452"))
+      .add(uprooted().put("barcode", "036000291452")));
+
+    CompletableFuture<JsonResponse> createCompleted = new CompletableFuture();
+
+    client.post(itemStorageUrl("/batch"), batch, StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(createCompleted));
+
+    JsonResponse postResponse = createCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(postResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+    //the second item has the same barcode as the first item in the batch
+    assertThat(postResponse.getJson().getInteger("createdRecords"), is(1));
+    assertThat(postResponse.getJson().getInteger("failedRecords"), is(1));
+
+    assertThat(getById(reusedId).getJson().getString("barcode"),
+      is("036000291452"));
+  }
+
+  @Test
+  public void canLoadItemsFromNewlineDelimitedJson()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    UUID firstId = UUID.randomUUID();
+
+    String load = String.join("\n",
+      smallAngryPlanet(firstId, UUID.randomUUID()).encode(),
+      "",
+      nod().encode(),
+      uprooted().encode()) + "\n";
+
+    CompletableFuture<JsonResponse> loadCompleted = new CompletableFuture<>();
+
+    client.postText(itemStorageUrl("/load"), load, "application/octet-stream",
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(loadCompleted));
+
+    JsonResponse loadResponse = loadCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(loadResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+    assertThat(loadResponse.getJson().getInteger("loadedRecords"), is(3));
+    assertThat(loadResponse.getJson().getJsonArray("problems").size(), is(0));
+
+    assertThat(getById(firstId).getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+    JsonObject page = getPage(itemStorageUrl() + "?query=title=Nod");
+
+    assertThat(page.getJsonArray("items").size(), is(1));
+    assertThat(StorageSql.isUUID(
+      page.getJsonArray("items").getJsonObject(0).getString("id")), is(true));
+  }
+
+  @Test
+  public void noItemsAreLoadedWhenAnyHasAProblem()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    UUID unknownMaterialTypeId = UUID.randomUUID();
+
+    JsonObject withoutInstance = nod();
+    withoutInstance.remove("instanceId");
+
+    String load = String.join("\n",
+      smallAngryPlanet().encode(),
+      withoutInstance.encode(),
+      uprooted().put("materialTypeId", unknownMaterialTypeId.toString()).encode(),
+      temeraire().put("id", "1234").encode());
+
+    CompletableFuture<JsonResponse> loadCompleted = new CompletableFuture<>();
+
+    client.postText(itemStorageUrl("/load"), load, "application/octet-stream",
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(loadCompleted));
+
+    JsonResponse loadResponse = loadCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(loadResponse.getStatusCode(),
+      is(HttpURLConnection.HTTP_BAD_REQUEST));
+
+    JsonObject result = loadResponse.getJson();
+
+    assertThat(result.getInteger("loadedRecords"), is(0));
+
+    JsonArray problems = result.getJsonArray("problems");
+
+    assertThat(problems.size(), is(3));
+
+    assertThat(problems.getJsonObject(0).getInteger("line"), is(2));
+    assertThat(problems.getJsonObject(0).getString("message"),
+      is("instanceId is required"));
+
+    assertThat(problems.getJsonObject(1).getInteger("line"), is(3));
+    assertThat(problems.getJsonObject(1).getString("message"),
+      is("Can not add " + unknownMaterialTypeId + ". Material type not found"));
+
+    assertThat(problems.getJsonObject(2).getInteger("line"), is(4));
+    assertThat(problems.getJsonObject(2).getString("message"),
+      is("ID must be a UUID"));
+
+    JsonObject page = getPage(itemStorageUrl());
+
+    assertThat(page.getJsonArray("items").size(), is(0));
+  }
+
+  @Test
+  public void itemsCreatedAtTheSameTimeCanBeInsertedTogether()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    long recordsBefore = WriteCoalescer.records();
+
+    WriteCoalescer.configure(200, 100);
+
+    try {
+      List<CompletableFuture<TextResponse>> created = new ArrayList<>();
+
+      for(JsonObject item : Arrays.asList(smallAngryPlanet(), nod(), uprooted(),
+        temeraire().put("barcode", "036000291452"))) {
+
+        CompletableFuture<TextResponse> createCompleted = new CompletableFuture<>();
+
+        client.post(itemStorageUrl(), item, StorageTestSuite.TENANT_ID,
+          ResponseHandler.text(createCompleted));
+
+        created.add(createCompleted);
+      }
+
+      List<Integer> statusCodes = new ArrayList<>();
+
+      for(CompletableFuture<TextResponse> createCompleted : created) {
+        statusCodes.add(createCompleted.get(5, TimeUnit.SECONDS).getStatusCode());
+      }
+
+      //only one of the items with the same barcode can be created
+      assertThat(statusCodes.stream().filter(code -> code == 201).count(), is(3L));
+      assertThat(statusCodes.stream().filter(code -> code == 400).count(), is(1L));
+    }
+    finally {
+      WriteCoalescer.configure(0, 100);
+    }
+
+    assertThat(WriteCoalescer.records() - recordsBefore >= 2, is(true));
+
+    assertThat(getPage(itemStorageUrl()).getJsonArray("items").size(), is(3));
+  }
+
+  @Test
+  public void materialTypeIsNotLookedUpSeparatelyForEachItem()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    createItem(smallAngryPlanet());
+
+    long hitsBefore = MaterialTypeCache.hits();
+    long missesBefore = MaterialTypeCache.misses();
+
+    createItem(nod());
+    createItem(uprooted());
+
+    //checked by the database as part of creating the item
+    assertThat(MaterialTypeCache.hits(), is(hitsBefore));
+    assertThat(MaterialTypeCache.misses(), is(missesBefore));
+  }
+
+  @Test
+  public void cannotCreateAnItemWithAnUnknownMaterialType()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    String unknownMaterialTypeId = UUID.randomUUID().toString();
+
+    CompletableFuture<TextResponse> createCompleted = new CompletableFuture();
+
+    client.post(itemStorageUrl(), nod().put("materialTypeId", unknownMaterialTypeId),
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(createCompleted));
+
+    TextResponse postResponse = createCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(postResponse.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+    assertThat(postResponse.getBody(), is(String.format(
+      "Can not add %s. Material type not found", unknownMaterialTypeId)));
+  }
+
+  @Test
+  public void cannotCreateAnItemWithADeletedMaterialType()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    CompletableFuture<JsonResponse> mtCreateCompleted = new CompletableFuture();
+
+    client.post(getMTUrl(), new JsonObject().put("name", "map"),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(mtCreateCompleted));
+
+    String temporaryMaterialTypeId = mtCreateCompleted.get(5, TimeUnit.SECONDS)
+      .getJson().getString("id");
+
+    UUID itemId = UUID.randomUUID();
+
+    createItem(nod(itemId, UUID.randomUUID())
+      .put("materialTypeId", temporaryMaterialTypeId));
+
+    CompletableFuture<Response> itemDeleteCompleted = new CompletableFuture();
+
+    client.delete(itemStorageUrl(String.format("/%s", itemId)),
+      StorageTestSuite.TENANT_ID, ResponseHandler.empty(itemDeleteCompleted));
+
+    itemDeleteCompleted.get(5, TimeUnit.SECONDS);
+
+    CompletableFuture<Response> mtDeleteCompleted = new CompletableFuture();
+
+    client.delete(getMTUrl() + "/" + temporaryMaterialTypeId,
+      StorageTestSuite.TENANT_ID, ResponseHandler.empty(mtDeleteCompleted));
+
+    assertThat(mtDeleteCompleted.get(5, TimeUnit.SECONDS).getStatusCode(),
+      is(HttpURLConnection.HTTP_NO_CONTENT));
+
+    CompletableFuture<TextResponse> createCompleted = new CompletableFuture();
+
+    client.post(itemStorageUrl(), uprooted()
+        .put("materialTypeId", temporaryMaterialTypeId),
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(createCompleted));
+
+    TextResponse postResponse = createCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(postResponse.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+  }
+
   @Test
   public void canCreateAnItemAtSpecificLocation()
     throws MalformedURLException, InterruptedException,
@@ -313,120 +759,904 @@ public class ItemStorageTest {
   }
 
   @Test
-  public void canReplaceAnItemWithASingleQuoteInTheTitle()
+  public void canGetAnItemOnlyWhenItHasChanged()
     throws MalformedURLException, InterruptedException,
     ExecutionException, TimeoutException {
 
     UUID id = UUID.randomUUID();
-    UUID instanceId = UUID.randomUUID();
 
-    JsonObject itemToCreate = createItemRequest(id, instanceId,
-      "The Time Traveller's Wife", "036587275931");
+    JsonObject itemToCreate = smallAngryPlanet(id, UUID.randomUUID());
 
     createItem(itemToCreate);
 
-    JsonObject replacement = itemToCreate.copy();
-    replacement.put("barcode", "036587275931");
-    replacement.put("location",
-      new JsonObject().put("name", "Annex Library"));
+    JsonResponse firstGetResponse = getById(id);
+
+    String eTag = firstGetResponse.getHeader("ETag");
+
+    assertThat(eTag, is(notNullValue()));
+
+    Response unchangedResponse = getById(id, eTag);
+
+    assertThat(unchangedResponse.getStatusCode(),
+      is(HttpURLConnection.HTTP_NOT_MODIFIED));
+    assertThat(unchangedResponse.getHeader("ETag"), is(eTag));
 
     CompletableFuture<Response> replaceCompleted = new CompletableFuture();
 
-    client.put(itemStorageUrl(String.format("/%s", id)), replacement,
+    client.put(itemStorageUrl(String.format("/%s", id)),
+      itemToCreate.copy().put("barcode", "125845734657"),
       StorageTestSuite.TENANT_ID, ResponseHandler.empty(replaceCompleted));
 
-    Response putResponse = replaceCompleted.get(5, TimeUnit.SECONDS);
+    replaceCompleted.get(5, TimeUnit.SECONDS);
 
-    assertThat(putResponse.getStatusCode(), is(HttpURLConnection.HTTP_NO_CONTENT));
+    Response changedResponse = getById(id, eTag);
 
-    JsonResponse getResponse = getById(id);
+    assertThat(changedResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    assertThat(changedResponse.getHeader("ETag"), not(eTag));
+  }
+
+  @Test
+  public void replacingAnItemWithAnIdenticalItemWritesNothing()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    UUID id = UUID.randomUUID();
+
+    JsonObject itemToCreate = smallAngryPlanet(id, UUID.randomUUID());
+
+    createItem(itemToCreate);
+
+    String eTag = getById(id).getHeader("ETag");
+
+    long unchangedBefore = Upsert.unchanged();
+
+    CompletableFuture<Response> replaceCompleted = new CompletableFuture<>();
+
+    client.put(itemStorageUrl(String.format("/%s", id)), itemToCreate.copy(),
+      StorageTestSuite.TENANT_ID, ResponseHandler.empty(replaceCompleted));
+
+    assertThat(replaceCompleted.get(5, TimeUnit.SECONDS).getStatusCode(),
+      is(HttpURLConnection.HTTP_NO_CONTENT));
+
+    Map<String, String> ifMatch = new HashMap<>();
+    ifMatch.put("If-Match", eTag);
+
+    CompletableFuture<Response> conditionalReplaceCompleted = new CompletableFuture<>();
+
+    client.put(itemStorageUrl(String.format("/%s", id)), itemToCreate.copy(),
+      StorageTestSuite.TENANT_ID, ifMatch,
+      ResponseHandler.empty(conditionalReplaceCompleted));
+
+    assertThat(conditionalReplaceCompleted.get(5, TimeUnit.SECONDS).getStatusCode(),
+      is(HttpURLConnection.HTTP_NO_CONTENT));
+
+    assertThat(Upsert.unchanged() - unchangedBefore, is(2L));
+
+    //the version only changes when the item is written
+    assertThat(getById(id).getHeader("ETag"), is(eTag));
+  }
+
+  @Test
+  public void cannotReplaceAnItemChangedSinceItWasFetched()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    UUID id = UUID.randomUUID();
+
+    JsonObject itemToCreate = smallAngryPlanet(id, UUID.randomUUID());
+
+    createItem(itemToCreate);
+
+    String eTag = getById(id).getHeader("ETag");
+
+    Map<String, String> ifMatch = new HashMap<>();
+    ifMatch.put("If-Match", eTag);
+
+    CompletableFuture<Response> firstReplaceCompleted = new CompletableFuture();
+
+    client.put(itemStorageUrl(String.format("/%s", id)),
+      itemToCreate.copy().put("barcode", "125845734657"),
+      StorageTestSuite.TENANT_ID, ifMatch,
+      ResponseHandler.empty(firstReplaceCompleted));
+
+    assertThat(firstReplaceCompleted.get(5, TimeUnit.SECONDS).getStatusCode(),
+      is(HttpURLConnection.HTTP_NO_CONTENT));
+
+    CompletableFuture<TextResponse> secondReplaceCompleted = new CompletableFuture();
+
+    client.put(itemStorageUrl(String.format("/%s", id)),
+      itemToCreate.copy().put("barcode", "673274826203"),
+      StorageTestSuite.TENANT_ID, ifMatch,
+      ResponseHandler.text(secondReplaceCompleted));
+
+    assertThat(secondReplaceCompleted.get(5, TimeUnit.SECONDS).getStatusCode(),
+      is(HttpURLConnection.HTTP_PRECON_FAILED));
+
+    assertThat(getById(id).getJson().getString("barcode"), is("125845734657"));
+  }
+
+  @Test
+  public void concurrentPutsForTheSameNewItemCreateOnlyOneItem()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    UUID id = UUID.randomUUID();
+
+    JsonObject itemToCreate = nod(id, UUID.randomUUID());
+
+    CompletableFuture<Response> firstPutCompleted = new CompletableFuture();
+    CompletableFuture<Response> secondPutCompleted = new CompletableFuture();
+
+    client.put(itemStorageUrl(String.format("/%s", id)), itemToCreate,
+      StorageTestSuite.TENANT_ID, ResponseHandler.empty(firstPutCompleted));
+
+    client.put(itemStorageUrl(String.format("/%s", id)), itemToCreate,
+      StorageTestSuite.TENANT_ID, ResponseHandler.empty(secondPutCompleted));
+
+    assertThat(firstPutCompleted.get(5, TimeUnit.SECONDS).getStatusCode(),
+      is(HttpURLConnection.HTTP_NO_CONTENT));
+
+    assertThat(secondPutCompleted.get(5, TimeUnit.SECONDS).getStatusCode(),
+      is(HttpURLConnection.HTTP_NO_CONTENT));
+
+    JsonObject page = getPage(itemStorageUrl() + "?query=barcode=565578437802");
+
+    assertThat(page.getJsonArray("items").size(), is(1));
+    assertThat(page.getInteger("totalRecords"), is(1));
+  }
+
+  @Test
+  public void cannotReplaceAnItemWithAnUnknownMaterialType()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    UUID id = UUID.randomUUID();
+
+    JsonObject itemToCreate = smallAngryPlanet(id, UUID.randomUUID());
+
+    createItem(itemToCreate);
+
+    String unknownMaterialTypeId = UUID.randomUUID().toString();
+
+    CompletableFuture<TextResponse> replaceCompleted = new CompletableFuture();
+
+    client.put(itemStorageUrl(String.format("/%s", id)),
+      itemToCreate.copy().put("materialTypeId", unknownMaterialTypeId),
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(replaceCompleted));
+
+    TextResponse putResponse = replaceCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(putResponse.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+    assertThat(putResponse.getBody(), containsString(unknownMaterialTypeId));
+
+    JsonResponse getResponse = getById(id);
+
+    assertThat(getResponse.getJson().getString("materialTypeId"),
+      is(materialTypeID));
+  }
+
+  @Test
+  public void canReplaceAnItemWithASingleQuoteInTheTitle()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    UUID id = UUID.randomUUID();
+    UUID instanceId = UUID.randomUUID();
+
+    JsonObject itemToCreate = createItemRequest(id, instanceId,
+      "The Time Traveller's Wife", "036587275931");
+
+    createItem(itemToCreate);
+
+    JsonObject replacement = itemToCreate.copy();
+    replacement.put("barcode", "036587275931");
+    replacement.put("location",
+      new JsonObject().put("name", "Annex Library"));
+
+    CompletableFuture<Response> replaceCompleted = new CompletableFuture();
+
+    client.put(itemStorageUrl(String.format("/%s", id)), replacement,
+      StorageTestSuite.TENANT_ID, ResponseHandler.empty(replaceCompleted));
+
+    Response putResponse = replaceCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(putResponse.getStatusCode(), is(HttpURLConnection.HTTP_NO_CONTENT));
+
+    JsonResponse getResponse = getById(id);
+
+    //PUT currently cannot return a response
+    assertThat(getResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+    JsonObject item = getResponse.getJson();
+
+    assertThat(item.getString("id"), is(id.toString()));
+    assertThat(item.getString("instanceId"), is(instanceId.toString()));
+    assertThat(item.getString("title"), is("The Time Traveller's Wife"));
+    assertThat(item.getString("barcode"), is("036587275931"));
+    assertThat(item.getJsonObject("status").getString("name"),
+      is("Available"));
+    assertThat(item.getString("materialTypeId"),
+      is(materialTypeID));
+    assertThat(item.getJsonObject("location").getString("name"),
+      is("Annex Library"));
+  }
+
+  @Test
+  public void canChangePartOfAnItem()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    UUID id = UUID.randomUUID();
+    UUID instanceId = UUID.randomUUID();
+
+    createItem(smallAngryPlanet(id, instanceId));
+
+    JsonObject patch = new JsonObject()
+      .put("status", new JsonObject().put("name", "Checked out"))
+      .putNull("location");
+
+    CompletableFuture<Response> patchCompleted = new CompletableFuture();
+
+    client.patch(itemStorageUrl(String.format("/%s", id)), patch,
+      StorageTestSuite.TENANT_ID, ResponseHandler.empty(patchCompleted));
+
+    Response patchResponse = patchCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(patchResponse.getStatusCode(), is(HttpURLConnection.HTTP_NO_CONTENT));
+
+    JsonObject item = getById(id).getJson();
+
+    assertThat(item.getString("id"), is(id.toString()));
+    assertThat(item.getString("instanceId"), is(instanceId.toString()));
+    assertThat(item.getString("title"), is("Long Way to a Small Angry Planet"));
+    assertThat(item.getJsonObject("status").getString("name"),
+      is("Checked out"));
+    assertThat(item.getString("materialTypeId"), is(materialTypeID));
+    assertThat(item.containsKey("location"), is(false));
+  }
+
+  @Test
+  public void cannotChangePartOfAnItemThatDoesNotExist()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    JsonObject patch = new JsonObject()
+      .put("status", new JsonObject().put("name", "Checked out"));
+
+    CompletableFuture<TextResponse> patchCompleted = new CompletableFuture();
+
+    client.patch(itemStorageUrl(String.format("/%s", UUID.randomUUID())), patch,
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(patchCompleted));
+
+    TextResponse patchResponse = patchCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(patchResponse.getStatusCode(), is(HttpURLConnection.HTTP_NOT_FOUND));
+  }
+
+  @Test
+  public void cannotRemoveARequiredPropertyOfAnItem()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    UUID id = UUID.randomUUID();
+
+    createItem(smallAngryPlanet(id, UUID.randomUUID()));
+
+    CompletableFuture<TextResponse> patchCompleted = new CompletableFuture();
+
+    client.patch(itemStorageUrl(String.format("/%s", id)),
+      new JsonObject().putNull("barcode"),
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(patchCompleted));
+
+    TextResponse patchResponse = patchCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(patchResponse.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+    assertThat(patchResponse.getBody(),
+      is("barcode is required and cannot be removed"));
+
+    assertThat(getById(id).getJson().getString("barcode"), is(notNullValue()));
+  }
+
+  @Test
+  public void cannotChangePartOfAnItemToTheWrongType()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    UUID id = UUID.randomUUID();
+
+    createItem(smallAngryPlanet(id, UUID.randomUUID()));
+
+    CompletableFuture<TextResponse> patchCompleted = new CompletableFuture();
+
+    client.patch(itemStorageUrl(String.format("/%s", id)),
+      new JsonObject().put("status", "Checked out"),
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(patchCompleted));
+
+    TextResponse patchResponse = patchCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(patchResponse.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+    assertThat(patchResponse.getBody(), containsString("Patched item is not valid"));
+
+    JsonResponse getResponse = getById(id);
+
+    assertThat(getResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    assertThat(getResponse.getJson().getJsonObject("status").getString("name"),
+      is("Available"));
+  }
+
+  @Test
+  public void cannotCreateAnItemWithADuplicateBarcode()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    createItem(smallAngryPlanet());
+
+    CompletableFuture<TextResponse> createCompleted = new CompletableFuture();
+
+    client.post(itemStorageUrl(),
+      nod().put("barcode", "036000291452"), StorageTestSuite.TENANT_ID,
+      ResponseHandler.text(createCompleted));
+
+    TextResponse postResponse = createCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(postResponse.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+
+    assertThat(postResponse.getBody(),
+      is("Barcodes must be unique, 036000291452 is already assigned to another item"));
+  }
+
+  @Test
+  public void cannotReplaceAnItemWithADuplicateBarcode()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    createItem(smallAngryPlanet());
+
+    UUID id = UUID.randomUUID();
+
+    JsonObject itemToCreate = nod(id, UUID.randomUUID());
+
+    createItem(itemToCreate);
+
+    JsonObject replacement = itemToCreate.copy()
+      .put("barcode", "036000291452");
+
+    CompletableFuture<TextResponse> replaceCompleted = new CompletableFuture();
+
+    client.put(itemStorageUrl(String.format("/%s", id)), replacement,
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(replaceCompleted));
+
+    TextResponse putResponse = replaceCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(putResponse.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+
+    assertThat(putResponse.getBody(),
+      is("Barcodes must be unique, 036000291452 is already assigned to another item"));
+
+    assertThat(getById(id).getJson().getString("barcode"), is("565578437802"));
+  }
+
+  @Test
+  public void canDeleteAnItem() throws InterruptedException,
+    MalformedURLException, TimeoutException, ExecutionException {
+
+    UUID id = UUID.randomUUID();
+    UUID instanceId = UUID.randomUUID();
+
+    JsonObject itemToCreate = smallAngryPlanet(id, instanceId);
+
+    createItem(itemToCreate);
+
+    CompletableFuture<Response> deleteCompleted = new CompletableFuture();
+
+    client.delete(itemStorageUrl(String.format("/%s", id)),
+      StorageTestSuite.TENANT_ID, ResponseHandler.empty(deleteCompleted));
+
+    Response deleteResponse = deleteCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(deleteResponse.getStatusCode(), is(HttpURLConnection.HTTP_NO_CONTENT));
+
+    CompletableFuture<Response> getCompleted = new CompletableFuture();
+
+    client.get(itemStorageUrl(String.format("/%s", id)),
+      StorageTestSuite.TENANT_ID, ResponseHandler.empty(getCompleted));
+
+    Response getResponse = getCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(getResponse.getStatusCode(), is(HttpURLConnection.HTTP_NOT_FOUND));
+  }
+
+  @Test
+  public void canFollowTheChangesMadeToItems()
+    throws InterruptedException, MalformedURLException,
+    TimeoutException, ExecutionException {
+
+    String resumeToken = getPage(itemChangesUrl("?since=latest"))
+      .getString("resumeToken");
+
+    UUID id = UUID.randomUUID();
+
+    createItem(nod(id, UUID.randomUUID()));
+
+    CompletableFuture<Response> deleteCompleted = new CompletableFuture();
+
+    client.delete(itemStorageUrl(String.format("/%s", id)),
+      StorageTestSuite.TENANT_ID, ResponseHandler.empty(deleteCompleted));
+
+    assertThat(deleteCompleted.get(5, TimeUnit.SECONDS).getStatusCode(),
+      is(HttpURLConnection.HTTP_NO_CONTENT));
+
+    JsonObject page = getPage(itemChangesUrl("?since=" + resumeToken));
+
+    JsonArray changes = page.getJsonArray("changes");
+
+    assertThat(changes.size(), is(2));
+    assertThat(changes.getJsonObject(0).getString("recordId"), is(id.toString()));
+    assertThat(changes.getJsonObject(0).getString("operation"), is("INSERT"));
+    assertThat(changes.getJsonObject(1).getString("recordId"), is(id.toString()));
+    assertThat(changes.getJsonObject(1).getString("operation"), is("DELETE"));
+
+    JsonObject following = getPage(
+      itemChangesUrl("?since=" + page.getString("resumeToken")));
+
+    assertThat(following.getJsonArray("changes").size(), is(0));
+    assertThat(following.getString("resumeToken"), is(page.getString("resumeToken")));
+  }
+
+  @Test
+  public void changesCommittedAfterLaterChangesAreNotPassedOver()
+    throws Exception {
+
+    String resumeToken = getPage(itemChangesUrl("?since=latest"))
+      .getString("resumeToken");
+
+    UUID olderId = UUID.randomUUID();
+    UUID newerId = UUID.randomUUID();
+
+    String insert = "INSERT INTO test_tenant_inventory_storage.item (_id, jsonb)"
+      + " VALUES ('%s', '%s')";
+
+    SQLConnection older = StorageTestSuite.beginTransaction();
+    SQLConnection newer = StorageTestSuite.beginTransaction();
+
+    try {
+      //the older transaction has the lower ID, but makes its change after the newer one
+      StorageTestSuite.execute(older, "SELECT txid_current()");
+
+      StorageTestSuite.execute(newer, String.format(insert, newerId,
+        smallAngryPlanet(newerId, UUID.randomUUID()).encode()));
+
+      StorageTestSuite.execute(older, String.format(insert, olderId,
+        nod(olderId, UUID.randomUUID()).encode()));
+
+      StorageTestSuite.commit(older);
+
+      JsonObject firstPage = getPage(itemChangesUrl("?since=" + resumeToken));
+
+      JsonArray firstChanges = firstPage.getJsonArray("changes");
+
+      assertThat(firstChanges.size(), is(1));
+      assertThat(firstChanges.getJsonObject(0).getString("recordId"),
+        is(olderId.toString()));
+
+      //committed after a later change was provided
+      StorageTestSuite.commit(newer);
+
+      JsonObject secondPage = getPage(
+        itemChangesUrl("?since=" + firstPage.getString("resumeToken")));
+
+      JsonArray secondChanges = secondPage.getJsonArray("changes");
+
+      assertThat(secondChanges.size(), is(1));
+      assertThat(secondChanges.getJsonObject(0).getString("recordId"),
+        is(newerId.toString()));
+    }
+    finally {
+      older.close();
+      newer.close();
+    }
+  }
+
+  @Test
+  public void cannotFollowTheChangesMadeToItemsWithAnInvalidResumeToken()
+    throws InterruptedException, MalformedURLException,
+    TimeoutException, ExecutionException {
+
+    CompletableFuture<TextResponse> getCompleted = new CompletableFuture();
+
+    client.get(itemChangesUrl("?since=abc"), StorageTestSuite.TENANT_ID,
+      ResponseHandler.text(getCompleted));
+
+    TextResponse response = getCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(response.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+    assertThat(response.getBody(), is("Invalid resume token: abc"));
+  }
+
+  @Test
+  public void canGetOnlyTheItemsChangedSinceAPointInTime()
+    throws InterruptedException, MalformedURLException,
+    TimeoutException, ExecutionException {
+
+    UUID unchangedId = UUID.randomUUID();
+    UUID deletedId = UUID.randomUUID();
+
+    createItem(smallAngryPlanet(unchangedId, UUID.randomUUID()));
+    createItem(nod(deletedId, UUID.randomUUID()));
+
+    //so that the items created so far were definitely created beforehand
+    Thread.sleep(50);
+
+    String since = OffsetDateTime.now(ZoneOffset.UTC).toString();
+
+    UUID createdId = UUID.randomUUID();
+
+    createItem(uprooted().put("id", createdId.toString()));
+
+    CompletableFuture<Response> deleteCompleted = new CompletableFuture();
+
+    client.delete(itemStorageUrl(String.format("/%s", deletedId)),
+      StorageTestSuite.TENANT_ID, ResponseHandler.empty(deleteCompleted));
+
+    assertThat(deleteCompleted.get(5, TimeUnit.SECONDS).getStatusCode(),
+      is(HttpURLConnection.HTTP_NO_CONTENT));
+
+    JsonObject changed = getPage(itemStorageUrl() + "?modifiedSince=" + since);
+
+    JsonArray items = changed.getJsonArray("items");
+
+    assertThat(items.size(), is(1));
+    assertThat(items.getJsonObject(0).getString("id"), is(createdId.toString()));
+
+    JsonArray deletedIds = changed.getJsonArray("deletedIds");
+
+    assertThat(deletedIds.size(), is(1));
+    assertThat(deletedIds.getString(0), is(deletedId.toString()));
+  }
+
+  @Test
+  public void changesCommittedAfterLaterChangesAreNotMissedWhenSyncing()
+    throws Exception {
+
+    String since = OffsetDateTime.now(ZoneOffset.UTC).toString();
+
+    UUID olderId = UUID.randomUUID();
+    UUID newerId = UUID.randomUUID();
+
+    SQLConnection older = StorageTestSuite.beginTransaction();
+
+    try {
+      //the older transaction starts (so is when its changes are made) first
+      StorageTestSuite.execute(older, "SELECT now()");
+
+      createItem(smallAngryPlanet(newerId, UUID.randomUUID()));
+
+      JsonObject firstSync = getPage(itemStorageUrl() + "?modifiedSince="
+        + URLEncoder.encode(since, "UTF-8"));
+
+      //the newer change is left for the next sync, as the older transaction is in progress
+      assertThat(firstSync.getJsonArray("items").size(), is(0));
+      assertThat(firstSync.getString("nextModifiedSince"), notNullValue());
+
+      StorageTestSuite.execute(older, String.format(
+        "INSERT INTO test_tenant_inventory_storage.item (_id, jsonb) VALUES ('%s', '%s')",
+        olderId, nod(olderId, UUID.randomUUID()).encode()));
+
+      //committed after a later change was made
+      StorageTestSuite.commit(older);
+
+      JsonObject secondSync = getPage(itemStorageUrl() + "?modifiedSince="
+        + URLEncoder.encode(firstSync.getString("nextModifiedSince"), "UTF-8"));
+
+      JsonArray items = secondSync.getJsonArray("items");
+
+      assertThat(items.size(), is(2));
+      assertThat(items.getJsonObject(0).getString("id"), is(olderId.toString()));
+      assertThat(items.getJsonObject(1).getString("id"), is(newerId.toString()));
+    }
+    finally {
+      older.close();
+    }
+  }
+
+  @Test
+  public void cannotGetTheItemsChangedSinceTooLongAgo()
+    throws InterruptedException, MalformedURLException,
+    TimeoutException, ExecutionException {
+
+    String since = OffsetDateTime.now(ZoneOffset.UTC).minusDays(30).toString();
+
+    CompletableFuture<TextResponse> getCompleted = new CompletableFuture();
+
+    client.get(itemStorageUrl() + "?modifiedSince=" + since,
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(getCompleted));
+
+    TextResponse response = getCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(response.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+    assertThat(response.getBody(),
+      is("modifiedSince cannot be more than 7 days ago, fetch every record instead"));
+  }
+
+  @Test
+  public void canPageAllItems()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    createItem(smallAngryPlanet());
+    createItem(nod());
+    createItem(uprooted());
+    createItem(temeraire());
+    createItem(interestingTimes());
+
+    CompletableFuture<JsonResponse> firstPageCompleted = new CompletableFuture();
+    CompletableFuture<JsonResponse> secondPageCompleted = new CompletableFuture();
+
+    client.get(itemStorageUrl() + "?limit=3", StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(firstPageCompleted));
+
+    client.get(itemStorageUrl() + "?limit=3&offset=3", StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(secondPageCompleted));
+
+    JsonResponse firstPageResponse = firstPageCompleted.get(5, TimeUnit.SECONDS);
+    JsonResponse secondPageResponse = secondPageCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(firstPageResponse.getStatusCode(), is(200));
+    assertThat(secondPageResponse.getStatusCode(), is(200));
+
+    JsonObject firstPage = firstPageResponse.getJson();
+    JsonObject secondPage = secondPageResponse.getJson();
+
+    JsonArray firstPageItems = firstPage.getJsonArray("items");
+    JsonArray secondPageItems = secondPage.getJsonArray("items");
+
+    assertThat(firstPageItems.size(), is(3));
+    assertThat(firstPage.getInteger("totalRecords"), is(5));
+
+    assertThat(secondPageItems.size(), is(2));
+    assertThat(secondPage.getInteger("totalRecords"), is(5));
+  }
+
+  @Test
+  public void canGetItemsWithoutTotalRecords()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    createItem(smallAngryPlanet());
+    createItem(nod());
+
+    JsonObject page = getPage(itemStorageUrl() + "?totalRecords=none");
+
+    assertThat(page.getJsonArray("items").size(), is(2));
+    assertThat(page.containsKey("totalRecords"), is(false));
+  }
+
+  @Test
+  public void canGetAnEstimateOfTotalRecords()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    createItem(smallAngryPlanet());
+    createItem(nod());
+
+    JsonObject allItems = getPage(itemStorageUrl() + "?totalRecords=estimate");
+    JsonObject searchedItems = getPage(itemStorageUrl()
+      + "?totalRecords=estimate&query=title=Nod");
+
+    //estimates depend upon database statistics, so only their presence is checked
+    assertThat(allItems.getInteger("totalRecords"), notNullValue());
+    assertThat(searchedItems.getInteger("totalRecords"), notNullValue());
+  }
+
+  @Test
+  public void totalRecordsIncludesNewlyCreatedItems()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    createItem(smallAngryPlanet());
+    createItem(nod());
+
+    JsonObject before = getPage(itemStorageUrl());
+
+    createItem(uprooted());
+
+    JsonObject after = getPage(itemStorageUrl());
+
+    assertThat(before.getInteger("totalRecords"), is(2));
+    assertThat(after.getInteger("totalRecords"), is(3));
+  }
+
+  @Test
+  public void cannotGetItemsWithUnknownTotalRecordsMode()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    CompletableFuture<TextResponse> getCompleted = new CompletableFuture();
+
+    client.get(itemStorageUrl() + "?totalRecords=some",
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(getCompleted));
+
+    TextResponse response = getCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(response.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+  }
+
+  @Test
+  public void canPageAllItemsUsingACursor()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    createItem(smallAngryPlanet());
+    createItem(nod());
+    createItem(uprooted());
+    createItem(temeraire());
+    createItem(interestingTimes());
+
+    JsonObject firstPage = getPage(itemStorageUrl() + "?limit=2&cursor=start");
+    JsonObject secondPage = getPage(itemStorageUrl() + "?limit=2&cursor="
+      + firstPage.getString("nextCursor"));
+    JsonObject thirdPage = getPage(itemStorageUrl() + "?limit=2&cursor="
+      + secondPage.getString("nextCursor"));
+
+    assertThat(firstPage.getJsonArray("items").size(), is(2));
+    assertThat(secondPage.getJsonArray("items").size(), is(2));
+    assertThat(thirdPage.getJsonArray("items").size(), is(1));
+
+    assertThat(firstPage.containsKey("totalRecords"), is(false));
+    assertThat(thirdPage.containsKey("nextCursor"), is(false));
+
+    Set<String> ids = new HashSet<>();
+
+    for (JsonObject page : Arrays.asList(firstPage, secondPage, thirdPage)) {
+      page.getJsonArray("items").forEach(item ->
+        ids.add(((JsonObject) item).getString("id")));
+    }
+
+    assertThat(ids.size(), is(5));
+  }
+
+  @Test
+  public void sortIsIgnoredWhenPagingItemsUsingACursor()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    createItem(smallAngryPlanet());
+    createItem(nod());
+    createItem(uprooted());
+
+    JsonObject firstPage = getPage(itemStorageUrl()
+      + "?limit=2&cursor=start&query=title=*%20sortBy%20title");
+
+    JsonObject secondPage = getPage(itemStorageUrl()
+      + "?limit=2&query=title=*%20sortBy%20title&cursor="
+      + firstPage.getString("nextCursor"));
+
+    assertThat(firstPage.getJsonArray("items").size(), is(2));
+    assertThat(secondPage.getJsonArray("items").size(), is(1));
+  }
+
+  @Test
+  public void cannotPageItemsUsingAnInvalidCursor()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    CompletableFuture<TextResponse> getCompleted = new CompletableFuture();
 
-    //PUT currently cannot return a response
-    assertThat(getResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    client.get(itemStorageUrl() + "?cursor=not-a-cursor",
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(getCompleted));
 
-    JsonObject item = getResponse.getJson();
+    TextResponse response = getCompleted.get(5, TimeUnit.SECONDS);
 
-    assertThat(item.getString("id"), is(id.toString()));
-    assertThat(item.getString("instanceId"), is(instanceId.toString()));
-    assertThat(item.getString("title"), is("The Time Traveller's Wife"));
-    assertThat(item.getString("barcode"), is("036587275931"));
-    assertThat(item.getJsonObject("status").getString("name"),
-      is("Available"));
-    assertThat(item.getString("materialTypeId"),
-      is(materialTypeID));
-    assertThat(item.getJsonObject("location").getString("name"),
-      is("Annex Library"));
+    assertThat(response.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
   }
 
   @Test
-  public void canDeleteAnItem() throws InterruptedException,
-    MalformedURLException, TimeoutException, ExecutionException {
+  public void canGetItemsByIds()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
 
-    UUID id = UUID.randomUUID();
-    UUID instanceId = UUID.randomUUID();
+    UUID smallAngryPlanetId = UUID.randomUUID();
+    UUID nodId = UUID.randomUUID();
 
-    JsonObject itemToCreate = smallAngryPlanet(id, instanceId);
+    createItem(smallAngryPlanet(smallAngryPlanetId, UUID.randomUUID()));
+    createItem(nod(nodId, UUID.randomUUID()));
+    createItem(uprooted());
 
-    createItem(itemToCreate);
+    JsonObject response = getPage(itemStorageUrl() + String.format(
+      "?ids=%s,%s", smallAngryPlanetId, nodId));
 
-    CompletableFuture<Response> deleteCompleted = new CompletableFuture();
+    JsonArray items = response.getJsonArray("items");
 
-    client.delete(itemStorageUrl(String.format("/%s", id)),
-      StorageTestSuite.TENANT_ID, ResponseHandler.empty(deleteCompleted));
+    assertThat(items.size(), is(2));
+    assertThat(response.getInteger("totalRecords"), is(2));
 
-    Response deleteResponse = deleteCompleted.get(5, TimeUnit.SECONDS);
+    Set<String> ids = new HashSet<>();
 
-    assertThat(deleteResponse.getStatusCode(), is(HttpURLConnection.HTTP_NO_CONTENT));
+    items.forEach(item -> ids.add(((JsonObject) item).getString("id")));
 
-    CompletableFuture<Response> getCompleted = new CompletableFuture();
+    assertThat(ids.contains(smallAngryPlanetId.toString()), is(true));
+    assertThat(ids.contains(nodId.toString()), is(true));
+  }
 
-    client.get(itemStorageUrl(String.format("/%s", id)),
-      StorageTestSuite.TENANT_ID, ResponseHandler.empty(getCompleted));
+  @Test
+  public void sortIsIgnoredWhenGettingItemsByIds()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
 
-    Response getResponse = getCompleted.get(5, TimeUnit.SECONDS);
+    UUID smallAngryPlanetId = UUID.randomUUID();
+    UUID nodId = UUID.randomUUID();
 
-    assertThat(getResponse.getStatusCode(), is(HttpURLConnection.HTTP_NOT_FOUND));
+    createItem(smallAngryPlanet(smallAngryPlanetId, UUID.randomUUID()));
+    createItem(nod(nodId, UUID.randomUUID()));
+
+    JsonObject response = getPage(itemStorageUrl() + String.format(
+      "?ids=%s,%s&query=title=*%%20sortBy%%20title", smallAngryPlanetId, nodId));
+
+    assertThat(response.getJsonArray("items").size(), is(2));
   }
 
   @Test
-  public void canPageAllItems()
-    throws MalformedURLException,
-    InterruptedException,
-    ExecutionException,
-    TimeoutException {
+  public void canGetItemsForManyInstances()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
 
-    createItem(smallAngryPlanet());
-    createItem(nod());
+    UUID firstInstanceId = UUID.randomUUID();
+    UUID secondInstanceId = UUID.randomUUID();
+
+    createItem(smallAngryPlanet(UUID.randomUUID(), firstInstanceId));
+    createItem(nod(UUID.randomUUID(), firstInstanceId));
+    createItem(temeraire().put("instanceId", secondInstanceId.toString()));
     createItem(uprooted());
-    createItem(temeraire());
-    createItem(interestingTimes());
 
-    CompletableFuture<JsonResponse> firstPageCompleted = new CompletableFuture();
-    CompletableFuture<JsonResponse> secondPageCompleted = new CompletableFuture();
+    JsonObject response = getPage(itemStorageUrl() + String.format(
+      "?instanceIds=%s,%s", firstInstanceId, secondInstanceId));
 
-    client.get(itemStorageUrl() + "?limit=3", StorageTestSuite.TENANT_ID,
-      ResponseHandler.json(firstPageCompleted));
+    assertThat(response.getJsonArray("items").size(), is(3));
 
-    client.get(itemStorageUrl() + "?limit=3&offset=3", StorageTestSuite.TENANT_ID,
-      ResponseHandler.json(secondPageCompleted));
+    CompletableFuture<JsonResponse> retrieveCompleted = new CompletableFuture();
 
-    JsonResponse firstPageResponse = firstPageCompleted.get(5, TimeUnit.SECONDS);
-    JsonResponse secondPageResponse = secondPageCompleted.get(5, TimeUnit.SECONDS);
+    client.post(itemStorageUrl("/retrieve"),
+      new JsonObject().put("instanceIds", new JsonArray()
+        .add(firstInstanceId.toString())
+        .add(secondInstanceId.toString())),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(retrieveCompleted));
 
-    assertThat(firstPageResponse.getStatusCode(), is(200));
-    assertThat(secondPageResponse.getStatusCode(), is(200));
+    JsonResponse retrieveResponse = retrieveCompleted.get(5, TimeUnit.SECONDS);
 
-    JsonObject firstPage = firstPageResponse.getJson();
-    JsonObject secondPage = secondPageResponse.getJson();
+    assertThat(retrieveResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    assertThat(retrieveResponse.getJson().getJsonArray("items").size(), is(3));
+  }
 
-    JsonArray firstPageItems = firstPage.getJsonArray("items");
-    JsonArray secondPageItems = secondPage.getJsonArray("items");
+  @Test
+  public void cannotGetItemsByIdsWhichAreNotUUIDs()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
 
-    assertThat(firstPageItems.size(), is(3));
-    assertThat(firstPage.getInteger("totalRecords"), is(5));
+    CompletableFuture<TextResponse> getCompleted = new CompletableFuture();
 
-    assertThat(secondPageItems.size(), is(2));
-    assertThat(secondPage.getInteger("totalRecords"), is(5));
+    client.get(itemStorageUrl() + "?ids=1234", StorageTestSuite.TENANT_ID,
+      ResponseHandler.text(getCompleted));
+
+    TextResponse response = getCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(response.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+    assertThat(response.getBody(), is("Invalid ID: 1234"));
   }
 
   @Test
@@ -499,6 +1729,224 @@ public class ItemStorageTest {
       is("Long Way to a Small Angry Planet"));
   }
 
+  @Test
+  public void searchesForExactValuesUseAnIndex()
+    throws Exception {
+
+    String barcodePlan = StorageTestSuite.explain("item",
+      "barcode==036000291452");
+
+    assertThat(barcodePlan, containsString("Index"));
+    assertThat(barcodePlan, not(containsString("Seq Scan")));
+
+    String instancePlan = StorageTestSuite.explain("item",
+      String.format("instanceId==%s", UUID.randomUUID()));
+
+    assertThat(instancePlan, containsString("Index"));
+    assertThat(instancePlan, not(containsString("Seq Scan")));
+
+    String materialTypePlan = StorageTestSuite.explain("item",
+      String.format("materialTypeId==%s", materialTypeID));
+
+    assertThat(materialTypePlan, containsString("Index"));
+    assertThat(materialTypePlan, not(containsString("Seq Scan")));
+
+    String statusPlan = StorageTestSuite.explain("item", "status.name==Available");
+
+    assertThat(statusPlan, containsString("Index"));
+    assertThat(statusPlan, not(containsString("Seq Scan")));
+  }
+
+  @Test
+  public void searchesOnFrequentlyUsedPropertiesCompareTheirOwnColumns()
+    throws Exception {
+
+    assertThat(StorageTestSuite.explain("item", "barcode==036000291452"),
+      containsString("item_barcode_unique_idx"));
+
+    assertThat(StorageTestSuite.explain("item",
+      String.format("instanceId==%s", UUID.randomUUID())),
+      containsString("item_instanceid_idx"));
+
+    assertThat(StorageTestSuite.explain("item", "status.name==Available"),
+      containsString("item_status_idx"));
+  }
+
+  @Test
+  public void searchesForPartOfATitleOrBarcodeUseATrigramIndex()
+    throws Exception {
+
+    //only created when the pg_trgm extension is available
+    Assume.assumeTrue(StorageTestSuite.hasIndex("item_title_trgm_idx"));
+
+    assertThat(StorageTestSuite.explain("item", "title=\"*uproot*\""),
+      containsString("item_title_trgm_idx"));
+
+    assertThat(StorageTestSuite.explain("item", "barcode=\"*0002914*\""),
+      containsString("item_barcode_trgm_idx"));
+
+    assertThat(StorageTestSuite.explain("item", "barcode=\"0360002*\""),
+      containsString("Index"));
+  }
+
+  @Test
+  public void canSearchForItemsByStatus()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    createItem(smallAngryPlanet());
+    createItem(nod().put("status", new JsonObject().put("name", "Missing")));
+    createItem(uprooted());
+
+    JsonObject page = getPage(itemStorageUrl() + "?query=status.name==Missing");
+
+    JsonArray foundItems = page.getJsonArray("items");
+
+    assertThat(foundItems.size(), is(1));
+    assertThat(page.getInteger("totalRecords"), is(1));
+
+    assertThat(foundItems.getJsonObject(0).getString("title"), is("Nod"));
+  }
+
+  @Test
+  public void canCountItemsGroupedByStatusAndLocation()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    createItem(smallAngryPlanet());
+    createItem(nod().put("status", new JsonObject().put("name", "Missing")));
+    createItem(uprooted());
+    createItem(temeraire()
+      .put("location", new JsonObject().put("name", "Annex")));
+
+    JsonObject facets = getPage(
+      itemFacetsUrl("?facets=status.name,location.name"));
+
+    assertThat(facets.getJsonArray("fields").getList(),
+      is(Arrays.asList("status.name", "location.name")));
+
+    JsonArray groups = facets.getJsonArray("groups");
+
+    assertThat(groups.size(), is(3));
+
+    //largest group first
+    assertThat(groups.getJsonObject(0).getJsonArray("values").getList(),
+      is(Arrays.asList("Available", "Main Library")));
+    assertThat(groups.getJsonObject(0).getInteger("count"), is(2));
+
+    assertThat(groups.getJsonObject(1).getJsonArray("values").getList(),
+      is(Arrays.asList("Available", "Annex")));
+    assertThat(groups.getJsonObject(1).getInteger("count"), is(1));
+
+    assertThat(groups.getJsonObject(2).getJsonArray("values").getList(),
+      is(Arrays.asList("Missing", "Main Library")));
+    assertThat(groups.getJsonObject(2).getInteger("count"), is(1));
+  }
+
+  @Test
+  public void canCountOnlyItemsMatchingAQuery()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    createItem(smallAngryPlanet());
+    createItem(nod().put("status", new JsonObject().put("name", "Missing")));
+    createItem(uprooted());
+
+    JsonObject facets = getPage(
+      itemFacetsUrl("?facets=status.name&query=title=Nod"));
+
+    JsonArray groups = facets.getJsonArray("groups");
+
+    assertThat(groups.size(), is(1));
+
+    assertThat(groups.getJsonObject(0).getJsonArray("values").getList(),
+      is(Arrays.asList("Missing")));
+    assertThat(groups.getJsonObject(0).getInteger("count"), is(1));
+  }
+
+  @Test
+  public void sortIsIgnoredWhenCountingItems()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    createItem(smallAngryPlanet());
+    createItem(nod());
+
+    JsonObject facets = getPage(
+      itemFacetsUrl("?facets=status.name&query=title=*%20sortBy%20title"));
+
+    JsonArray groups = facets.getJsonArray("groups");
+
+    assertThat(groups.size(), is(1));
+    assertThat(groups.getJsonObject(0).getInteger("count"), is(2));
+  }
+
+  @Test
+  public void cannotCountItemsByAnInvalidField()
+    throws InterruptedException, MalformedURLException,
+    TimeoutException, ExecutionException {
+
+    CompletableFuture<TextResponse> getCompleted = new CompletableFuture();
+
+    client.get(itemFacetsUrl("?facets=status.name,jsonb)"),
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(getCompleted));
+
+    TextResponse response = getCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(response.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+    assertThat(response.getBody(), is("Invalid facet field: jsonb)"));
+  }
+
+  @Test
+  public void searchesWhichDifferOnlyByValueArePrepared()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    createItem(smallAngryPlanet());
+    createItem(nod());
+    createItem(uprooted());
+
+    JsonObject first = getPage(itemStorageUrl() + "?query=barcode==036000291452");
+
+    assertThat(first.getJsonArray("items").getJsonObject(0).getString("title"),
+      is("Long Way to a Small Angry Planet"));
+
+    long hitsBefore = PreparedStatementCache.hits();
+
+    JsonObject second = getPage(itemStorageUrl() + "?query=barcode==565578437802");
+    JsonObject third = getPage(itemStorageUrl() + "?query=barcode==657670342075");
+
+    assertThat(second.getJsonArray("items").size(), is(1));
+    assertThat(second.getInteger("totalRecords"), is(1));
+    assertThat(second.getJsonArray("items").getJsonObject(0).getString("title"),
+      is("Nod"));
+
+    assertThat(third.getJsonArray("items").size(), is(1));
+    assertThat(third.getJsonArray("items").getJsonObject(0).getString("title"),
+      is("Uprooted"));
+
+    assertThat(PreparedStatementCache.hits(), is(hitsBefore + 2));
+  }
+
+  @Test
+  public void repeatedSearchesAreOnlyTranslatedOnce()
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    createItem(nod());
+
+    String url = itemStorageUrl() + "?query=title=Nod";
+
+    getPage(url);
+
+    long missesBefore = CqlTranslationCache.misses();
+
+    JsonObject repeated = getPage(url);
+
+    assertThat(repeated.getJsonArray("items").size(), is(1));
+    assertThat(CqlTranslationCache.misses(), is(missesBefore));
+  }
+
   @Test
   public void cannotSearchForItemsUsingADefaultField()
     throws MalformedURLException,
@@ -566,6 +2014,60 @@ public class ItemStorageTest {
     assertThat(responseBody.getInteger("totalRecords"), is(0));
   }
 
+  @Test
+  public void canDeleteItemsMatchingAQuery()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    UUID instanceId = UUID.randomUUID();
+
+    createItem(smallAngryPlanet(UUID.randomUUID(), instanceId));
+    createItem(nod(UUID.randomUUID(), instanceId));
+    createItem(uprooted());
+
+    CompletableFuture<JsonResponse> deleteFinished = new CompletableFuture();
+
+    client.delete(itemStorageUrl(String.format("?query=instanceId=%s", instanceId)),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(deleteFinished));
+
+    JsonResponse deleteResponse = deleteFinished.get(5, TimeUnit.SECONDS);
+
+    assertThat(deleteResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    assertThat(deleteResponse.getJson().getInteger("deletedRecords"), is(2));
+
+    JsonObject remaining = getPage(itemStorageUrl().toString());
+
+    assertThat(remaining.getJsonArray("items").size(), is(1));
+    assertThat(remaining.getInteger("totalRecords"), is(1));
+    assertThat(remaining.getJsonArray("items").getJsonObject(0).getString("title"),
+      is("Uprooted"));
+  }
+
+  @Test
+  public void cannotDeleteItemsUsingAnInvalidQuery()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    createItem(smallAngryPlanet());
+
+    CompletableFuture<TextResponse> deleteFinished = new CompletableFuture();
+
+    client.delete(itemStorageUrl("?query=title%3D"),
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(deleteFinished));
+
+    TextResponse deleteResponse = deleteFinished.get(5, TimeUnit.SECONDS);
+
+    assertThat(deleteResponse.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+
+    JsonObject remaining = getPage(itemStorageUrl().toString());
+
+    assertThat(remaining.getInteger("totalRecords"), is(1));
+  }
+
   @Test
   public void tenantIsRequiredForCreatingNewItem()
     throws MalformedURLException, InterruptedException,
@@ -629,6 +2131,39 @@ public class ItemStorageTest {
     return getCompleted.get(5, TimeUnit.SECONDS);
   }
 
+  private Response getById(UUID id, String ifNoneMatch)
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    URL getItemUrl = itemStorageUrl(String.format("/%s", id));
+
+    Map<String, String> headers = new HashMap<>();
+    headers.put("If-None-Match", ifNoneMatch);
+
+    CompletableFuture<Response> getCompleted = new CompletableFuture();
+
+    client.get(getItemUrl, StorageTestSuite.TENANT_ID, headers,
+      ResponseHandler.empty(getCompleted));
+
+    return getCompleted.get(5, TimeUnit.SECONDS);
+  }
+
+  private JsonObject getPage(String url)
+    throws MalformedURLException, InterruptedException,
+    ExecutionException, TimeoutException {
+
+    CompletableFuture<JsonResponse> getCompleted = new CompletableFuture();
+
+    client.get(url, StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(getCompleted));
+
+    JsonResponse response = getCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(response.getStatusCode(), is(200));
+
+    return response.getJson();
+  }
+
   private void createItem(JsonObject itemToCreate)
     throws MalformedURLException, InterruptedException,
     ExecutionException, TimeoutException {
@@ -666,6 +2201,18 @@ public class ItemStorageTest {
     return StorageTestSuite.storageUrl("/item-storage/items" + subPath);
   }
 
+  private static String itemChangesUrl(String query)
+    throws MalformedURLException {
+
+    return StorageTestSuite.storageUrl("/item-storage/changes" + query).toString();
+  }
+
+  private static String itemFacetsUrl(String query)
+    throws MalformedURLException {
+
+    return StorageTestSuite.storageUrl("/item-storage/facets" + query).toString();
+  }
+
   private JsonObject createItemRequest(
     UUID id,
     UUID instanceId,
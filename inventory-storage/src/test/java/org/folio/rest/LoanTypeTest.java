@@ -150,7 +150,7 @@ public class LoanTypeTest {
 
     item.put("instanceId", ""+UUID.randomUUID());
     item.put("title", "abcd");
-    item.put("barcode", "12345");
+    item.put("barcode", barcode());
     item.put("loanTypeId", loanTypeId);
 
     return item.encode();
@@ -168,4 +168,9 @@ public class LoanTypeTest {
     return item.encode();
   }
 
+  /** Barcodes have to be unique across all items */
+  private static String barcode() {
+    return String.valueOf(Math.abs(UUID.randomUUID().getLeastSignificantBits()));
+  }
+
 }
@@ -271,7 +271,7 @@ public class MaterialTypeTest {
 
     item.put("instanceId", ""+UUID.randomUUID());
     item.put("title", "abcd");
-    item.put("barcode", "12345");
+    item.put("barcode", barcode());
     item.put("materialTypeId", mtId);
 
     return item;
@@ -290,4 +290,9 @@ public class MaterialTypeTest {
     return item;
   }
 
+  /** Barcodes have to be unique across all items */
+  private static String barcode() {
+    return String.valueOf(Math.abs(UUID.randomUUID().getLeastSignificantBits()));
+  }
+
 }
@@ -6,6 +6,7 @@ import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.sql.ResultSet;
+import io.vertx.ext.sql.SQLConnection;
 
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -13,8 +14,10 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 import org.folio.rest.persist.PostgresClient;
+import org.folio.rest.support.CqlTranslationCache;
 import org.folio.rest.support.HttpClient;
 import org.folio.rest.support.Response;
 import org.folio.rest.support.ResponseHandler;
@@ -37,6 +40,10 @@ public class StorageTestSuite {
 
   public static final String TENANT_ID = "test_tenant";
 
+  //number of partitions for the item table of the test tenant, see template_create_tenant.sql
+  private static final String ITEM_PARTITIONS_PROPERTY =
+    "org.folio.inventory.storage.test.item.partitions";
+
   private static Vertx vertx;
   private static int port;
 
@@ -91,6 +98,8 @@ public class StorageTestSuite {
 
     startVerticle(options);
 
+    configureItemPartitions(Integer.getInteger(ITEM_PARTITIONS_PROPERTY, 0));
+
     prepareTenant(TENANT_ID);
   }
 
@@ -101,6 +110,8 @@ public class StorageTestSuite {
 
     removeTenant(TENANT_ID);
 
+    configureItemPartitions(0);
+
     CompletableFuture undeploymentComplete = new CompletableFuture<String>();
 
     vertx.close(res -> {
@@ -153,6 +164,227 @@ public class StorageTestSuite {
     }
   }
 
+  /**
+   * Describes how the database would execute the SQL generated for a CQL query
+   *
+   * Sequential scans are disabled whilst planning, as with the small amount of
+   * data used in tests the planner would otherwise never choose an index
+   *
+   * @param tableName table the query is made against
+   * @param cql query to translate
+   * @return the query plan, one line per step
+   */
+  static String explain(String tableName, String cql)
+    throws Exception {
+
+    String whereClause = CqlTranslationCache.whereClause(tableName, cql);
+
+    String sql = String.format("EXPLAIN SELECT jsonb FROM %s_%s.%s WHERE %s",
+      TENANT_ID, "inventory_storage", tableName, whereClause);
+
+    CompletableFuture<String> explainCompleted = new CompletableFuture<>();
+
+    PostgresClient.getInstance(getVertx(), TENANT_ID).getClient()
+      .getConnection(connection -> {
+        if(connection.failed()) {
+          explainCompleted.completeExceptionally(connection.cause());
+          return;
+        }
+
+        SQLConnection sqlConnection = connection.result();
+
+        sqlConnection.execute("SET enable_seqscan = off", set ->
+          sqlConnection.query(sql, plan -> {
+            sqlConnection.close();
+
+            if(plan.succeeded()) {
+              explainCompleted.complete(plan.result().getResults().stream()
+                .map(row -> row.getString(0))
+                .collect(Collectors.joining("\n")));
+            }
+            else {
+              explainCompleted.completeExceptionally(plan.cause());
+            }
+          }));
+      });
+
+    return explainCompleted.get(5, TimeUnit.SECONDS);
+  }
+
+  /**
+   * @param indexName
+   * @return whether the index was created for the test tenant (some indexes
+   * are only created when the database supports them)
+   */
+  static boolean hasIndex(String indexName)
+    throws InterruptedException, ExecutionException, TimeoutException {
+
+    PostgresClient dbClient = PostgresClient.getInstance(
+      getVertx(), TENANT_ID);
+
+    CompletableFuture<ResultSet> selectCompleted = new CompletableFuture();
+
+    String sql = String.format("SELECT indexname FROM pg_indexes" +
+        " WHERE schemaname = '%s_%s' AND indexname = '%s'",
+      TENANT_ID, "inventory_storage", indexName);
+
+    dbClient.select(sql, result -> {
+      if(result.succeeded()) {
+        selectCompleted.complete(result.result());
+      }
+      else {
+        selectCompleted.completeExceptionally(result.cause());
+      }
+    });
+
+    return selectCompleted.get(5, TimeUnit.SECONDS).getNumRows() > 0;
+  }
+
+  /**
+   * Starts a transaction against the test tenant's schema, e.g. to make changes
+   * which are not committed until later
+   *
+   * @return connection for the transaction, to be closed once it has finished
+   */
+  static SQLConnection beginTransaction()
+    throws InterruptedException, ExecutionException, TimeoutException {
+
+    CompletableFuture<SQLConnection> begun = new CompletableFuture<>();
+
+    PostgresClient.getInstance(getVertx(), TENANT_ID).getClient()
+      .getConnection(connection -> {
+        if(connection.failed()) {
+          begun.completeExceptionally(connection.cause());
+          return;
+        }
+
+        SQLConnection sqlConnection = connection.result();
+
+        sqlConnection.setAutoCommit(false, result -> {
+          if(result.succeeded()) {
+            begun.complete(sqlConnection);
+          }
+          else {
+            sqlConnection.close();
+            begun.completeExceptionally(result.cause());
+          }
+        });
+      });
+
+    return begun.get(5, TimeUnit.SECONDS);
+  }
+
+  static void execute(SQLConnection connection, String sql)
+    throws InterruptedException, ExecutionException, TimeoutException {
+
+    CompletableFuture<Void> executed = new CompletableFuture<>();
+
+    connection.execute(sql, result -> {
+      if(result.succeeded()) {
+        executed.complete(null);
+      }
+      else {
+        executed.completeExceptionally(result.cause());
+      }
+    });
+
+    executed.get(5, TimeUnit.SECONDS);
+  }
+
+  static void commit(SQLConnection connection)
+    throws InterruptedException, ExecutionException, TimeoutException {
+
+    CompletableFuture<Void> committed = new CompletableFuture<>();
+
+    connection.commit(result -> {
+      if(result.succeeded()) {
+        committed.complete(null);
+      }
+      else {
+        committed.completeExceptionally(result.cause());
+      }
+    });
+
+    committed.get(5, TimeUnit.SECONDS);
+  }
+
+  /**
+   * @param tableName
+   * @return whether the table was created partitioned for the test tenant
+   */
+  static boolean isPartitioned(String tableName)
+    throws InterruptedException, ExecutionException, TimeoutException {
+
+    PostgresClient dbClient = PostgresClient.getInstance(
+      getVertx(), TENANT_ID);
+
+    CompletableFuture<ResultSet> selectCompleted = new CompletableFuture();
+
+    String sql = String.format("SELECT relname FROM pg_class" +
+        " WHERE oid = '%s_%s.%s'::regclass AND relkind = 'p'",
+      TENANT_ID, "inventory_storage", tableName);
+
+    dbClient.select(sql, result -> {
+      if(result.succeeded()) {
+        selectCompleted.complete(result.result());
+      }
+      else {
+        selectCompleted.completeExceptionally(result.cause());
+      }
+    });
+
+    return selectCompleted.get(5, TimeUnit.SECONDS).getNumRows() > 0;
+  }
+
+  /**
+   * Sets the number of partitions used for the item table of tenants created
+   * afterwards, only for Postgres 13 or later (earlier versions keep the
+   * single table, so tests which need partitions are skipped)
+   *
+   * @param partitions 0 for a single table
+   */
+  private static void configureItemPartitions(int partitions)
+    throws InterruptedException, ExecutionException, TimeoutException {
+
+    if(partitions < 2 && Integer.getInteger(ITEM_PARTITIONS_PROPERTY, 0) < 2) {
+      return;
+    }
+
+    //for new connections, and the one (which may be reused) making the change
+    String sql = String.format("DO $$ BEGIN"
+      + " IF current_setting('server_version_num')::integer >= 130000 THEN"
+      + " EXECUTE format('ALTER DATABASE %%I SET inventory_storage.item_partitions = %s',"
+      + " current_database());"
+      + " PERFORM set_config('inventory_storage.item_partitions', '%s', false);"
+      + " END IF;"
+      + " END $$", partitions, partitions);
+
+    CompletableFuture<Void> configured = new CompletableFuture<>();
+
+    PostgresClient.getInstance(getVertx()).getClient()
+      .getConnection(connection -> {
+        if(connection.failed()) {
+          configured.completeExceptionally(connection.cause());
+          return;
+        }
+
+        SQLConnection sqlConnection = connection.result();
+
+        sqlConnection.execute(sql, result -> {
+          sqlConnection.close();
+
+          if(result.succeeded()) {
+            configured.complete(null);
+          }
+          else {
+            configured.completeExceptionally(result.cause());
+          }
+        });
+      });
+
+    configured.get(5, TimeUnit.SECONDS);
+  }
+
   private static ResultSet getRecordsWithUnmatchedIds(String tenantId,
                                                      String tableName)
     throws InterruptedException, ExecutionException, TimeoutException {
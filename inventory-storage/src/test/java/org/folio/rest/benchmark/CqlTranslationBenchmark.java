@@ -0,0 +1,48 @@
+package org.folio.rest.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.folio.rest.support.CqlTranslationCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
+import org.z3950.zing.cql.cql2pgjson.QueryValidationException;
+
+/**
+ * Compares translating CQL for every request with using previously
+ * translated queries
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CqlTranslationBenchmark {
+
+  @Param({
+    "barcode==036000291452",
+    "title=\"small angry\"",
+    "instanceId==7fbd5d84-62d1-44c6-9c45-6cb173998bbd and status.name==Available",
+    "title=* sortBy title"
+  })
+  public String query;
+
+  @Benchmark
+  public String translateEveryTime() throws QueryValidationException {
+    return new CQL2PgJSON("item.jsonb").cql2pgJson(query);
+  }
+
+  @Benchmark
+  public String translateViaCache() throws QueryValidationException {
+    return CqlTranslationCache.whereClause("item", query);
+  }
+}
@@ -0,0 +1,192 @@
+package org.folio.rest.benchmark;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.folio.rest.persist.PostgresClient;
+import org.folio.rest.support.CqlTranslationCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.sql.ResultSet;
+import io.vertx.ext.sql.SQLConnection;
+
+/**
+ * Compares searching for part of a title or barcode with and without the
+ * trigram indexes from template_create_tenant.sql, against a table of items
+ * (1 million by default, set with -p rows=...)
+ *
+ * Uses the embedded database, unless
+ * org.folio.inventory.storage.test.database is external (configured by
+ * org.folio.inventory.storage.test.config, as for the tests), which must
+ * have the pg_trgm extension available. The items are kept in the
+ * trigram_benchmark schema, and only generated when there are not already
+ * enough of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrigramSearchBenchmark {
+
+  private static final String SCHEMA = "trigram_benchmark";
+
+  @Param({"1000000"})
+  public int rows;
+
+  @Param({"true", "false"})
+  public boolean indexed;
+
+  @Param({
+    "title=\"*uproot*\"",
+    "barcode=\"*0012345*\"",
+    "barcode=\"00000099*\""
+  })
+  public String query;
+
+  private Vertx vertx;
+  private boolean embedded;
+  private PostgresClient client;
+  private String sql;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    vertx = Vertx.vertx();
+
+    String database = System.getProperty(
+      "org.folio.inventory.storage.test.database", "embedded");
+
+    embedded = !database.equals("external");
+
+    if(!embedded) {
+      PostgresClient.setConfigFilePath(System.getProperty(
+        "org.folio.inventory.storage.test.config", "/postgres-conf-local.json"));
+    }
+    else {
+      PostgresClient.setIsEmbedded(true);
+      PostgresClient.getInstance(vertx).startEmbeddedPostgres();
+    }
+
+    client = PostgresClient.getInstance(vertx);
+
+    //the same columns as the item table, as the criteria use them
+    execute("CREATE EXTENSION IF NOT EXISTS pg_trgm SCHEMA public");
+    execute(String.format("CREATE SCHEMA IF NOT EXISTS %s", SCHEMA));
+    execute(String.format("CREATE TABLE IF NOT EXISTS %s.item"
+      + " (_id UUID PRIMARY KEY, jsonb JSONB NOT NULL, barcode TEXT)", SCHEMA));
+
+    if(count() != rows) {
+      System.out.println(String.format("Generating %s items", rows));
+
+      execute(String.format("TRUNCATE %s.item", SCHEMA));
+
+      //a few titles contain uproot, barcodes are unique and zero padded
+      execute(String.format("INSERT INTO %s.item (_id, jsonb, barcode)"
+        + " SELECT md5(i::text)::uuid, jsonb_build_object('title',"
+        + " CASE WHEN i %% 100000 = 0 THEN 'Uprooted ' || i"
+        + " ELSE substr(md5(i::text), 1, 10) || ' ' || substr(md5((-i)::text), 1, 12) END,"
+        + " 'barcode', lpad(i::text, 12, '0')), lpad(i::text, 12, '0')"
+        + " FROM generate_series(1, %s) AS i", SCHEMA, rows));
+    }
+
+    execute(String.format("DROP INDEX IF EXISTS %s.item_title_trgm_idx", SCHEMA));
+    execute(String.format("DROP INDEX IF EXISTS %s.item_barcode_trgm_idx", SCHEMA));
+
+    if(indexed) {
+      execute(String.format("CREATE INDEX item_title_trgm_idx ON %s.item"
+        + " USING gin ((jsonb->>'title') public.gin_trgm_ops)", SCHEMA));
+      execute(String.format("CREATE INDEX item_barcode_trgm_idx ON %s.item"
+        + " USING gin (barcode public.gin_trgm_ops)", SCHEMA));
+    }
+
+    execute(String.format("ANALYZE %s.item", SCHEMA));
+
+    //the same criteria as a search for items
+    sql = String.format("SELECT jsonb FROM %s.item WHERE %s LIMIT 10",
+      SCHEMA, CqlTranslationCache.whereClause("item", query));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if(embedded) {
+      PostgresClient.stopEmbeddedPostgres();
+    }
+
+    vertx.close();
+  }
+
+  @Benchmark
+  public ResultSet search() throws Exception {
+    return query(sql);
+  }
+
+  private long count() throws Exception {
+    return query(String.format("SELECT count(*) AS count FROM %s.item", SCHEMA))
+      .getRows().get(0).getLong("count");
+  }
+
+  private ResultSet query(String statement) throws Exception {
+    CompletableFuture<ResultSet> queried = new CompletableFuture<>();
+
+    withConnection(queried, connection ->
+      connection.query(statement, reply -> {
+        connection.close();
+
+        if(reply.succeeded()) {
+          queried.complete(reply.result());
+        }
+        else {
+          queried.completeExceptionally(reply.cause());
+        }
+      }));
+
+    return queried.get(5, TimeUnit.MINUTES);
+  }
+
+  private void execute(String statement) throws Exception {
+    CompletableFuture<Void> executed = new CompletableFuture<>();
+
+    withConnection(executed, connection ->
+      connection.execute(statement, reply -> {
+        connection.close();
+
+        if(reply.succeeded()) {
+          executed.complete(null);
+        }
+        else {
+          executed.completeExceptionally(reply.cause());
+        }
+      }));
+
+    executed.get(10, TimeUnit.MINUTES);
+  }
+
+  private void withConnection(
+    CompletableFuture<?> completed,
+    Consumer<SQLConnection> action) {
+
+    client.getClient().getConnection(connection -> {
+      if(connection.failed()) {
+        completed.completeExceptionally(connection.cause());
+        return;
+      }
+
+      action.accept(connection.result());
+    });
+  }
+}
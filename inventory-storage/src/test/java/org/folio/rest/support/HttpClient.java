@@ -4,9 +4,12 @@ import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpClientRequest;
 import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.Json;
 
 import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
 
 public class HttpClient {
 
@@ -52,6 +55,27 @@ public class HttpClient {
     }
   }
 
+  public void postText(URL url,
+                       String body,
+                       String contentType,
+                       String tenantId,
+                       Handler<HttpClientResponse> responseHandler) {
+
+    HttpClientRequest request = client.postAbs(url.toString(), responseHandler);
+
+    request.headers().add("Accept","application/json, text/plain");
+    request.headers().add("Content-type", contentType);
+
+    if(tenantId != null) {
+      request.headers().add(TENANT_HEADER, tenantId);
+    }
+
+    System.out.println(String.format("POST %s, Request: %s",
+      url.toString(), body));
+
+    request.end(body);
+  }
+
   public void get(URL url,
            Handler<HttpClientResponse> responseHandler) {
 
@@ -63,8 +87,36 @@ public class HttpClient {
                   String tenantId,
                   Handler<HttpClientResponse> responseHandler) {
 
+    put(url, body, tenantId, Collections.emptyMap(), responseHandler);
+  }
+
+  public void put(URL url,
+                  Object body,
+                  String tenantId,
+                  Map<String, String> headers,
+                  Handler<HttpClientResponse> responseHandler) {
+
     HttpClientRequest request = client.putAbs(url.toString(), responseHandler);
 
+    request.headers().add("Accept","application/json, text/plain");
+    request.headers().add("Content-type","application/json");
+    request.headers().addAll(headers);
+
+    if(tenantId != null) {
+      request.headers().add(TENANT_HEADER, tenantId);
+    }
+
+    request.end(Json.encodePrettily(body));
+  }
+
+  public void patch(URL url,
+                    Object body,
+                    String tenantId,
+                    Handler<HttpClientResponse> responseHandler) {
+
+    HttpClientRequest request = client.requestAbs(HttpMethod.PATCH,
+      url.toString(), responseHandler);
+
     request.headers().add("Accept","application/json, text/plain");
     request.headers().add("Content-type","application/json");
 
@@ -86,9 +138,26 @@ public class HttpClient {
            String tenantId,
            Handler<HttpClientResponse> responseHandler) {
 
+    get(url, tenantId, Collections.emptyMap(), responseHandler);
+  }
+
+  public void get(URL url,
+                  String tenantId,
+                  Map<String, String> headers,
+                  Handler<HttpClientResponse> responseHandler) {
+
+    get(url.toString(), tenantId, headers, responseHandler);
+  }
+
+  public void get(String url,
+           String tenantId,
+           Map<String, String> headers,
+           Handler<HttpClientResponse> responseHandler) {
+
     HttpClientRequest request = client.getAbs(url, responseHandler);
 
     request.headers().add("Accept","application/json");
+    request.headers().addAll(headers);
 
     if(tenantId != null) {
       request.headers().add(TENANT_HEADER, tenantId);
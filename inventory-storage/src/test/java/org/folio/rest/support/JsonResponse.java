@@ -1,5 +1,6 @@
 package org.folio.rest.support;
 
+import io.vertx.core.MultiMap;
 import io.vertx.core.json.JsonObject;
 
 public class JsonResponse extends TextResponse {
@@ -7,6 +8,10 @@ public class JsonResponse extends TextResponse {
     super(statusCode, body);
   }
 
+  public JsonResponse(int statusCode, String body, MultiMap headers) {
+    super(statusCode, body, headers);
+  }
+
   public JsonObject getJson() {
     return new JsonObject(getBody());
   }
@@ -15,7 +15,7 @@ public class ResponseHandler {
       try {
         int statusCode = response.statusCode();
 
-        completed.complete(new Response(statusCode));
+        completed.complete(new Response(statusCode, response.headers()));
       }
       catch(Exception e) {
         completed.completeExceptionally(e);
@@ -32,7 +32,8 @@ public class ResponseHandler {
           int statusCode = response.statusCode();
           String body = BufferHelper.stringFromBuffer(buffer);
 
-          completed.complete(new JsonResponse(statusCode, body));
+          completed.complete(new JsonResponse(statusCode, body,
+            response.headers()));
 
         } catch(Exception e) {
           completed.completeExceptionally(e);
@@ -51,7 +52,8 @@ public class ResponseHandler {
           try {
             String body = BufferHelper.stringFromBuffer(buffer);
 
-            completed.complete(new TextResponse(statusCode, body));
+            completed.complete(new TextResponse(statusCode, body,
+              response.headers()));
 
           } catch (Exception e) {
             completed.completeExceptionally(e);
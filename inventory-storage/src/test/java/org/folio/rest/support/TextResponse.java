@@ -1,5 +1,7 @@
 package org.folio.rest.support;
 
+import io.vertx.core.MultiMap;
+
 public class TextResponse extends Response {
     private final String body;
 
@@ -8,6 +10,11 @@ public class TextResponse extends Response {
     this.body = body;
   }
 
+  public TextResponse(int statusCode, String body, MultiMap headers) {
+    super(statusCode, headers);
+    this.body = body;
+  }
+
   public String getBody() {
     return body;
   }
@@ -5,8 +5,10 @@ import io.vertx.core.json.JsonObject
 import io.vertx.groovy.ext.web.Router
 import io.vertx.groovy.ext.web.RoutingContext
 import io.vertx.groovy.ext.web.handler.BodyHandler
+import org.folio.inventory.CollectionResourceClient
 import org.folio.inventory.domain.Instance
 import org.folio.inventory.storage.Storage
+import org.folio.inventory.support.http.client.OkapiHttpClient
 import org.folio.metadata.common.WebContext
 import org.folio.metadata.common.api.request.PagingParameters
 import org.folio.metadata.common.api.request.VertxBodyParser
@@ -31,6 +33,8 @@ class Instances {
     router.post(relativeInstancesPath()).handler(this.&create)
     router.delete(relativeInstancesPath()).handler(this.&deleteAll)
 
+    router.get(relativeInstancesPath() + "/export").handler(this.&export)
+
     router.get(relativeInstancesPath() + "/:id").handler(this.&getById)
     router.put(relativeInstancesPath() + "/:id").handler(this.&update)
     router.delete(relativeInstancesPath() + "/:id").handler(this.&deleteById)
@@ -154,6 +158,26 @@ class Instances {
       }, FailureResponseConsumer.serverError(routingContext.response()))
   }
 
+  void export(RoutingContext routingContext) {
+    def context = new WebContext(routingContext)
+
+    def search = context.getStringParameter("query", null)
+
+    def client = new OkapiHttpClient(routingContext.vertx().createHttpClient(),
+      new URL(context.okapiLocation), context.tenantId,
+      context.token,
+      {
+        ServerErrorResponse.internalError(routingContext.response(),
+          "Failed to retrieve instances: ${it}")
+      })
+
+    def instanceStorageClient = new CollectionResourceClient(client,
+      new URL(context.okapiLocation + "/instance-storage/instances"))
+
+    new StorageExport(instanceStorageClient, "instances", search)
+      .streamTo(routingContext.response())
+  }
+
   private static String relativeInstancesPath() {
     "/inventory/instances"
   }
@@ -12,7 +12,6 @@ import org.folio.metadata.common.WebContext
 import org.folio.metadata.common.api.request.PagingParameters
 import org.folio.metadata.common.api.request.VertxBodyParser
 import org.folio.metadata.common.api.response.*
-import org.folio.metadata.common.domain.Failure
 import org.folio.metadata.common.domain.Success
 
 import java.util.concurrent.CompletableFuture
@@ -34,6 +33,8 @@ class Items {
     router.post(relativeItemsPath()).handler(this.&create)
     router.delete(relativeItemsPath()).handler(this.&deleteAll)
 
+    router.get(relativeItemsPath() + "/export").handler(this.&export)
+
     router.get(relativeItemsPath() + "/:id").handler(this.&getById)
     router.put(relativeItemsPath() + "/:id").handler(this.&update)
     router.delete(relativeItemsPath() + "/:id").handler(this.&deleteById)
@@ -85,20 +86,11 @@ class Items {
 
     def itemCollection = storage.getItemCollection(context)
 
-    itemCollection.findByCql("barcode=${newItem.barcode}",
-      PagingParameters.defaults(), {
-
-      if(it.result.size() == 0) {
-        itemCollection.add(newItem, { Success success ->
-          RedirectResponse.created(routingContext.response(),
-            context.absoluteUrl(
-              "${relativeItemsPath()}/${success.result.id}").toString())
-        }, FailureResponseConsumer.serverError(routingContext.response()))
-      }
-      else {
-        ClientErrorResponse.badRequest(routingContext.response(),
-          "Barcodes must be unique, ${newItem.barcode} is already assigned to another item")
-      }
+    //barcode uniqueness is enforced by storage
+    itemCollection.add(newItem, { Success success ->
+      RedirectResponse.created(routingContext.response(),
+        context.absoluteUrl(
+          "${relativeItemsPath()}/${success.result.id}").toString())
     }, FailureResponseConsumer.serverError(routingContext.response()))
   }
 
@@ -114,27 +106,10 @@ class Items {
     itemCollection.findById(routingContext.request().getParam("id"), {
       Success it ->
       if(it.result != null) {
-        if(it.result.barcode == updatedItem.barcode) {
-          itemCollection.update(updatedItem,
-            { SuccessResponse.noContent(routingContext.response()) },
-            { Failure failure -> ServerErrorResponse.internalError(
-              routingContext.response(), failure.reason) })
-        } else {
-          itemCollection.findByCql("barcode=${updatedItem.barcode}",
-            PagingParameters.defaults(), {
-
-            if(it.result.size() == 1 && it.result.first().id == updatedItem.id) {
-              itemCollection.update(updatedItem, {
-                SuccessResponse.noContent(routingContext.response()) },
-                { Failure failure -> ServerErrorResponse.internalError(
-                  routingContext.response(), failure.reason) })
-            }
-            else {
-              ClientErrorResponse.badRequest(routingContext.response(),
-                "Barcodes must be unique, ${updatedItem.barcode} is already assigned to another item")
-            }
-          }, FailureResponseConsumer.serverError(routingContext.response()))
-        }
+        //barcode uniqueness is enforced by storage
+        itemCollection.update(updatedItem,
+          { SuccessResponse.noContent(routingContext.response()) },
+          FailureResponseConsumer.serverError(routingContext.response()))
       }
       else {
         ClientErrorResponse.notFound(routingContext.response())
@@ -142,6 +117,17 @@ class Items {
     }, FailureResponseConsumer.serverError(routingContext.response()))
   }
 
+  void export(RoutingContext routingContext) {
+    def context = new WebContext(routingContext)
+
+    def search = context.getStringParameter("query", null)
+
+    def itemStorageClient = createItemStorageClient(routingContext, context)
+
+    new StorageExport(itemStorageClient, "items", search)
+      .streamTo(routingContext.response())
+  }
+
   void deleteById(RoutingContext routingContext) {
     def context = new WebContext(routingContext)
 
@@ -208,6 +194,22 @@ class Items {
       new URL(context.okapiLocation + "/material-types"))
   }
 
+  private CollectionResourceClient createItemStorageClient(
+    RoutingContext routingContext,
+    WebContext context) {
+
+    def client = new OkapiHttpClient(routingContext.vertx().createHttpClient(),
+      new URL(context.okapiLocation), context.tenantId,
+      context.token,
+      {
+        ServerErrorResponse.internalError(routingContext.response(),
+          "Failed to retrieve items: ${it}")
+      })
+
+    new CollectionResourceClient(client,
+      new URL(context.okapiLocation + "/item-storage/items"))
+  }
+
   private static String relativeItemsPath() {
     "/inventory/items"
   }
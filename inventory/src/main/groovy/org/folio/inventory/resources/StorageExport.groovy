@@ -0,0 +1,113 @@
+package org.folio.inventory.resources
+
+import io.vertx.core.json.JsonObject
+import io.vertx.core.logging.Logger
+import io.vertx.core.logging.LoggerFactory
+import io.vertx.groovy.core.http.HttpServerResponse
+import org.folio.inventory.CollectionResourceClient
+import org.folio.inventory.support.http.client.Response
+import org.folio.metadata.common.api.response.ServerErrorResponse
+
+/**
+ * Streams every record in a storage collection as newline delimited JSON
+ *
+ * Records are fetched from storage a page at a time using cursor paging,
+ * and the next page is only requested once the previous one has been
+ * written to the client, so only one page is ever held in memory
+ */
+class StorageExport {
+  static final String CONTENT_TYPE = "application/x-ndjson"
+
+  private static final Logger log = LoggerFactory.getLogger(StorageExport)
+
+  //largest page storage allows
+  private static final int PAGE_SIZE = 100
+  private static final String FIRST_PAGE_CURSOR = "start"
+
+  private final CollectionResourceClient storageClient
+  private final String collectionPropertyName
+  private final String query
+
+  StorageExport(
+    CollectionResourceClient storageClient,
+    String collectionPropertyName,
+    String query) {
+
+    this.storageClient = storageClient
+    this.collectionPropertyName = collectionPropertyName
+    this.query = query
+  }
+
+  void streamTo(HttpServerResponse response) {
+    def state = [started: false, closed: false]
+
+    response.closeHandler({ state.closed = true })
+
+    fetchPage(FIRST_PAGE_CURSOR, response, state)
+  }
+
+  private void fetchPage(
+    String cursor,
+    HttpServerResponse response,
+    Map state) {
+
+    storageClient.getMany(pageQuery(cursor), { Response pageResponse ->
+      if(state.closed) {
+        return
+      }
+
+      if(pageResponse.statusCode != 200) {
+        if(state.started) {
+          //too late to report the failure, truncate the response instead
+          log.error("Export of ${collectionPropertyName} failed part way through,"
+            + " storage responded ${pageResponse.statusCode}: ${pageResponse.body}")
+          response.close()
+        }
+        else {
+          ServerErrorResponse.internalError(response,
+            "Failed to export records: ${pageResponse.body}")
+        }
+
+        return
+      }
+
+      if(!state.started) {
+        state.started = true
+
+        response.setStatusCode(200)
+        response.setChunked(true)
+        response.putHeader("content-type", "${CONTENT_TYPE}; charset=utf-8")
+      }
+
+      def page = pageResponse.json
+
+      page.getJsonArray(collectionPropertyName).each { JsonObject record ->
+        response.write("${record.encode()}\n")
+      }
+
+      def nextCursor = page.getString("nextCursor")
+
+      if(nextCursor == null) {
+        response.end()
+      }
+      else if(response.writeQueueFull()) {
+        //wait for the client to catch up before fetching any more
+        response.drainHandler({
+          response.drainHandler(null)
+          fetchPage(nextCursor, response, state)
+        })
+      }
+      else {
+        fetchPage(nextCursor, response, state)
+      }
+    })
+  }
+
+  private String pageQuery(String cursor) {
+    def pageQuery = "limit=${PAGE_SIZE}&cursor=${URLEncoder.encode(cursor, "UTF-8")}"
+
+    query == null
+      ? pageQuery
+      : "${pageQuery}&query=${URLEncoder.encode(query, "UTF-8")}"
+  }
+}
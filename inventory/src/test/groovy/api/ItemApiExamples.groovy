@@ -374,6 +374,39 @@ class ItemApiExamples extends Specification {
       }
   }
 
+  void "Can export all items"() {
+    given:
+      def smallAngryInstance = createInstance(
+        smallAngryPlanet(UUID.randomUUID()))
+
+      createItem(smallAngryInstance.title, smallAngryInstance.id,
+        "645398607547")
+
+      createItem(smallAngryInstance.title, smallAngryInstance.id,
+        "175848607547")
+
+      def nodInstance = createInstance(nod(UUID.randomUUID()))
+
+      createItem(nodInstance.title, nodInstance.id, "564566456546")
+
+    when:
+      def (response, body) = client.get(
+        new URL("${ApiRoot.items()}/export"))
+
+    then:
+      assert response.status == 200
+      assert response.contentType.startsWith("application/x-ndjson")
+
+      def exportedItems = body.text.readLines()
+        .findAll { it.trim() != "" }
+        .collect { new JsonObject(it) }
+
+      assert exportedItems.size() == 3
+
+      assert exportedItems.collect { it.getString("barcode") }.toSet() ==
+        ["645398607547", "175848607547", "564566456546"].toSet()
+  }
+
   void "Page parameters must be numeric"() {
     when:
       def (response, message) = client.get(ApiRoot.items("limit=&offset="))
@@ -5,6 +5,9 @@ import io.vertx.core.Future;
 import io.vertx.core.http.HttpServer;
 import io.vertx.ext.web.Router;
 
+import java.util.Collection;
+import java.util.Collections;
+
 public class FakeOkapi extends AbstractVerticle {
 
   private static final String TENANT_ID = "test_tenant";
@@ -62,7 +65,8 @@ public class FakeOkapi extends AbstractVerticle {
   }
 
   private void registerFakeItemsModule(Router router) {
-    registerFakeModule(router, "/item-storage/items", "items");
+    registerFakeModule(router, "/item-storage/items", "items",
+      Collections.singletonList("barcode"));
   }
 
   private void RegisterFakeInstanceStorageModule(Router router) {
@@ -74,7 +78,17 @@ public class FakeOkapi extends AbstractVerticle {
     String rootPath,
     String collectionPropertyName) {
 
+    registerFakeModule(router, rootPath, collectionPropertyName,
+      Collections.emptyList());
+  }
+
+  private void registerFakeModule(
+    Router router,
+    String rootPath,
+    String collectionPropertyName,
+    Collection<String> uniqueProperties) {
+
     new FakeStorageModule(rootPath, collectionPropertyName,
-      TENANT_ID).register(router);
+      TENANT_ID, uniqueProperties).register(router);
   }
 }
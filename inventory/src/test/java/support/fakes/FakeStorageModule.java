@@ -7,6 +7,7 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import support.fakes.http.server.ClientErrorResponse;
 import support.fakes.http.server.JsonResponse;
@@ -22,17 +23,20 @@ public class FakeStorageModule extends AbstractVerticle {
 
   private final Map<String, Map<String, JsonObject>> storedResourcesByTenant;
   private final String collectionPropertyName;
+  private final Collection<String> uniqueProperties;
 
   public FakeStorageModule(
     String rootPath,
     String collectionPropertyName,
-    String tenantId) {
+    String tenantId,
+    Collection<String> uniqueProperties) {
 
     this.rootPath = rootPath;
 
     storedResourcesByTenant = new HashMap<>();
     storedResourcesByTenant.put(tenantId, new HashMap<>());
     this.collectionPropertyName = collectionPropertyName;
+    this.uniqueProperties = uniqueProperties;
   }
 
   public void register(Router router) {
@@ -66,7 +70,16 @@ public class FakeStorageModule extends AbstractVerticle {
 
     body.put("id", id);
 
-    getResourcesForTenant(context).put(id, body);
+    Map<String, JsonObject> resourcesForTenant = getResourcesForTenant(context);
+
+    String duplicate = findDuplicateProperty(resourcesForTenant, id, body);
+
+    if(duplicate != null) {
+      ClientErrorResponse.badRequest(routingContext.response(), duplicate);
+      return;
+    }
+
+    resourcesForTenant.put(id, body);
 
     JsonResponse.created(routingContext.response(), body);
   }
@@ -80,6 +93,13 @@ public class FakeStorageModule extends AbstractVerticle {
 
     Map<String, JsonObject> resourcesForTenant = getResourcesForTenant(context);
 
+    String duplicate = findDuplicateProperty(resourcesForTenant, id, body);
+
+    if(duplicate != null) {
+      ClientErrorResponse.badRequest(routingContext.response(), duplicate);
+      return;
+    }
+
     resourcesForTenant.replace(id, body);
 
     if(resourcesForTenant.containsKey(id)) {
@@ -121,6 +141,13 @@ public class FakeStorageModule extends AbstractVerticle {
       .filter(predicates.stream().reduce(Predicate::and).orElse(t -> false))
       .collect(Collectors.toList());
 
+    String cursor = context.getStringParameter("cursor", null);
+
+    if(cursor != null) {
+      getPageAfterCursor(routingContext, filteredItems, cursor, limit);
+      return;
+    }
+
     List<JsonObject> pagedItems = filteredItems.stream()
       .skip(offset)
       .limit(limit)
@@ -134,6 +161,35 @@ public class FakeStorageModule extends AbstractVerticle {
     JsonResponse.success(routingContext.response(), result);
   }
 
+  private void getPageAfterCursor(
+    RoutingContext routingContext,
+    List<JsonObject> filteredItems,
+    String cursor,
+    Integer limit) {
+
+    //unlike the real storage module, the cursor is the last ID on the page
+    List<JsonObject> remainingItems = filteredItems.stream()
+      .sorted(Comparator.comparing(item -> item.getString("id")))
+      .filter(item -> cursor.equals("start")
+        || item.getString("id").compareTo(cursor) > 0)
+      .collect(Collectors.toList());
+
+    List<JsonObject> pagedItems = remainingItems.stream()
+      .limit(limit)
+      .collect(Collectors.toList());
+
+    JsonObject result = new JsonObject();
+
+    result.put(collectionPropertyName, new JsonArray(pagedItems));
+
+    if(remainingItems.size() > pagedItems.size()) {
+      result.put("nextCursor",
+        pagedItems.get(pagedItems.size() - 1).getString("id"));
+    }
+
+    JsonResponse.success(routingContext.response(), result);
+  }
+
   private void empty(RoutingContext routingContext) {
     WebContext context = new WebContext(routingContext);
 
@@ -161,6 +217,34 @@ public class FakeStorageModule extends AbstractVerticle {
     }
   }
 
+  private String findDuplicateProperty(
+    Map<String, JsonObject> resourcesForTenant,
+    String id,
+    JsonObject body) {
+
+    for (String property : uniqueProperties) {
+      Object value = body.getValue(property);
+
+      if(value == null) {
+        continue;
+      }
+
+      boolean alreadyUsed = resourcesForTenant.values().stream()
+        .anyMatch(resource -> !id.equals(resource.getString("id"))
+          && value.equals(resource.getValue(property)));
+
+      if(alreadyUsed) {
+        //mirrors the message from the storage module
+        return String.format(
+          "%ss must be unique, %s is already assigned to another %s",
+          StringUtils.capitalize(property), value,
+          StringUtils.removeEnd(collectionPropertyName, "s"));
+      }
+    }
+
+    return null;
+  }
+
   private Map<String, JsonObject> getResourcesForTenant(WebContext context) {
     return storedResourcesByTenant.get(context.getTenantId());
   }